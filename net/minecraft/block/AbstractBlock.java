@@ -680,6 +680,11 @@ public abstract class AbstractBlock {
       private final AbstractBlock.ContextPredicate emissiveLightingPredicate;
       @Nullable
       protected AbstractBlock.AbstractBlockState.ShapeCache shapeCache;
+      /**
+       * The raw id of this state if the {@link BlockStateTable} has an entry for
+       * it, or {@code -1} otherwise.
+       */
+      int rawId = -1;
 
       protected AbstractBlockState(Block block, ImmutableMap<Property<?>, Comparable<?>> propertyMap, MapCodec<BlockState> codec) {
          super(block, propertyMap, codec);
@@ -719,11 +724,11 @@ public abstract class AbstractBlock {
       }
 
       public boolean isTranslucent(BlockView world, BlockPos pos) {
-         return this.shapeCache != null ? this.shapeCache.translucent : this.getBlock().isTranslucent(this.asBlockState(), world, pos);
+         return this.rawId >= 0 ? BlockStateTable.isTranslucent(this.rawId) : this.getBlock().isTranslucent(this.asBlockState(), world, pos);
       }
 
       public int getOpacity(BlockView world, BlockPos pos) {
-         return this.shapeCache != null ? this.shapeCache.lightSubtracted : this.getBlock().getOpacity(this.asBlockState(), world, pos);
+         return this.rawId >= 0 ? BlockStateTable.getOpacity(this.rawId) : this.getBlock().getOpacity(this.asBlockState(), world, pos);
       }
 
       public VoxelShape getCullingFace(BlockView world, BlockPos pos, Direction direction) {
@@ -735,7 +740,24 @@ public abstract class AbstractBlock {
       }
 
       public boolean exceedsCube() {
-         return this.shapeCache == null || this.shapeCache.exceedsCube;
+         return this.rawId < 0 || BlockStateTable.exceedsCube(this.rawId);
+      }
+
+      /**
+       * {@return whether this state never collides with anything}
+       *
+       * <p>This is {@code false} for states with dynamic bounds, whose
+       * collision shape has to be queried at each position.
+       */
+      public boolean hasEmptyCollisionShape() {
+         return this.rawId >= 0 && BlockStateTable.hasEmptyCollisionShape(this.rawId);
+      }
+
+      /**
+       * {@return whether the collision shape of this state is always the full cube}
+       */
+      public boolean hasFullCubeCollisionShape() {
+         return this.rawId >= 0 && BlockStateTable.hasFullCubeCollisionShape(this.rawId);
       }
 
       public boolean hasSidedTransparency() {
@@ -814,8 +836,8 @@ public abstract class AbstractBlock {
       }
 
       public boolean isOpaqueFullCube(BlockView world, BlockPos pos) {
-         if (this.shapeCache != null) {
-            return this.shapeCache.fullOpaque;
+         if (this.rawId >= 0) {
+            return BlockStateTable.isOpaqueFullCube(this.rawId);
          } else {
             BlockState blockState = this.asBlockState();
             return blockState.isOpaque() ? Block.isShapeFullCube(blockState.getCullingShape(world, pos)) : false;
@@ -839,7 +861,7 @@ public abstract class AbstractBlock {
       }
 
       public VoxelShape getCollisionShape(BlockView world, BlockPos pos) {
-         return this.shapeCache != null ? this.shapeCache.collisionShape : this.getCollisionShape(world, pos, ShapeContext.absent());
+         return this.rawId >= 0 ? BlockStateTable.getCollisionShape(this.rawId) : this.getCollisionShape(world, pos, ShapeContext.absent());
       }
 
       public VoxelShape getCollisionShape(BlockView world, BlockPos pos, ShapeContext context) {
@@ -1047,11 +1069,11 @@ public abstract class AbstractBlock {
       }
 
       public boolean isSideSolid(BlockView world, BlockPos pos, Direction direction, SideShapeType shapeType) {
-         return this.shapeCache != null ? this.shapeCache.isSideSolid(direction, shapeType) : shapeType.matches(this.asBlockState(), world, pos, direction);
+         return this.rawId >= 0 ? BlockStateTable.isSideSolid(this.rawId, direction, shapeType) : shapeType.matches(this.asBlockState(), world, pos, direction);
       }
 
       public boolean isFullCube(BlockView world, BlockPos pos) {
-         return this.shapeCache != null ? this.shapeCache.isFullCube : this.getBlock().isShapeFullCube(this.asBlockState(), world, pos);
+         return this.rawId >= 0 ? BlockStateTable.isFullCube(this.rawId) : this.getBlock().isShapeFullCube(this.asBlockState(), world, pos);
       }
 
       protected abstract BlockState asBlockState();
@@ -1060,7 +1082,7 @@ public abstract class AbstractBlock {
          return this.toolRequired;
       }
 
-      private static final class ShapeCache {
+      static final class ShapeCache {
          private static final Direction[] DIRECTIONS = Direction.values();
          private static final int SHAPE_TYPE_LENGTH = SideShapeType.values().length;
          protected final boolean fullOpaque;
@@ -1072,6 +1094,12 @@ public abstract class AbstractBlock {
          protected final boolean exceedsCube;
          private final boolean[] solidSides;
          protected final boolean isFullCube;
+         /**
+          * Whether the collision shape is empty for every context. Fluid blocks
+          * are excluded since some entities can walk on them.
+          */
+         protected final boolean emptyCollisionShape;
+         protected final boolean fullCubeCollisionShape;
 
          ShapeCache(BlockState state) {
             Block block = state.getBlock();
@@ -1116,6 +1144,8 @@ public abstract class AbstractBlock {
                }
 
                this.isFullCube = Block.isShapeFullCube(state.getCollisionShape(EmptyBlockView.INSTANCE, BlockPos.ORIGIN));
+               this.emptyCollisionShape = this.collisionShape.isEmpty() && !(block instanceof FluidBlock);
+               this.fullCubeCollisionShape = this.collisionShape == VoxelShapes.fullCube();
             }
          }
 
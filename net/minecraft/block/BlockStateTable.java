@@ -0,0 +1,145 @@
+package net.minecraft.block;
+
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.shape.VoxelShape;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Flat tables of the physical properties of block states that are queried the
+ * most, indexed by the raw id of the states in {@link Block#STATE_IDS}.
+ *
+ * <p>Only states without dynamic bounds have an entry, as the properties of the
+ * others depend on their position. The tables are rebuilt with the shape caches
+ * of the states, since these depend on tags.
+ *
+ * <p>A rebuild creates new tables instead of updating the current ones. As their
+ * fields are final, they can be read from any thread through a plain field.
+ */
+public final class BlockStateTable {
+   private static final int FULL_OPAQUE = 1;
+   private static final int TRANSLUCENT = 2;
+   private static final int FULL_CUBE = 4;
+   private static final int EXCEEDS_CUBE = 8;
+   private static final int EMPTY_COLLISION_SHAPE = 16;
+   private static final int FULL_CUBE_COLLISION_SHAPE = 32;
+   private static final Direction[] DIRECTIONS = Direction.values();
+   private static final SideShapeType[] SHAPE_TYPES = SideShapeType.values();
+   private static BlockStateTable current = new BlockStateTable(0);
+   private final byte[] flags;
+   private final byte[] opacities;
+   private final int[] solidSides;
+   private final VoxelShape[] collisionShapes;
+
+   private BlockStateTable(int size) {
+      this.flags = new byte[size];
+      this.opacities = new byte[size];
+      this.solidSides = new int[size];
+      this.collisionShapes = new VoxelShape[size];
+   }
+
+   /**
+    * Fills new tables from the shape caches of the registered states, and gives
+    * the states with an entry their raw id.
+    */
+   static void rebuild() {
+      int i = Block.STATE_IDS.size();
+      BlockStateTable blockStateTable = new BlockStateTable(i);
+
+      for(int j = 0; j < i; ++j) {
+         BlockState blockState = (BlockState)Block.STATE_IDS.get(j);
+         AbstractBlock.AbstractBlockState.ShapeCache shapeCache = blockState != null ? blockState.shapeCache : null;
+         if (shapeCache != null) {
+            int k = 0;
+            if (shapeCache.fullOpaque) {
+               k |= FULL_OPAQUE;
+            }
+
+            if (shapeCache.translucent) {
+               k |= TRANSLUCENT;
+            }
+
+            if (shapeCache.isFullCube) {
+               k |= FULL_CUBE;
+            }
+
+            if (shapeCache.exceedsCube) {
+               k |= EXCEEDS_CUBE;
+            }
+
+            if (shapeCache.emptyCollisionShape) {
+               k |= EMPTY_COLLISION_SHAPE;
+            }
+
+            if (shapeCache.fullCubeCollisionShape) {
+               k |= FULL_CUBE_COLLISION_SHAPE;
+            }
+
+            int l = 0;
+
+            for(int m = 0; m < DIRECTIONS.length; ++m) {
+               for(int n = 0; n < SHAPE_TYPES.length; ++n) {
+                  if (shapeCache.isSideSolid(DIRECTIONS[m], SHAPE_TYPES[n])) {
+                     l |= 1 << indexSolidSide(DIRECTIONS[m], SHAPE_TYPES[n]);
+                  }
+               }
+            }
+
+            blockStateTable.flags[j] = (byte)k;
+            blockStateTable.opacities[j] = (byte)shapeCache.lightSubtracted;
+            blockStateTable.solidSides[j] = l;
+            blockStateTable.collisionShapes[j] = shapeCache.collisionShape;
+         }
+      }
+
+      current = blockStateTable;
+
+      for(int j = 0; j < i; ++j) {
+         BlockState blockState = (BlockState)Block.STATE_IDS.get(j);
+         if (blockState != null) {
+            blockState.rawId = blockState.shapeCache != null ? j : -1;
+         }
+      }
+
+   }
+
+   private static int indexSolidSide(Direction direction, SideShapeType shapeType) {
+      return direction.ordinal() * SHAPE_TYPES.length + shapeType.ordinal();
+   }
+
+   public static boolean isOpaqueFullCube(int rawId) {
+      return (current.flags[rawId] & FULL_OPAQUE) != 0;
+   }
+
+   public static boolean isTranslucent(int rawId) {
+      return (current.flags[rawId] & TRANSLUCENT) != 0;
+   }
+
+   public static boolean isFullCube(int rawId) {
+      return (current.flags[rawId] & FULL_CUBE) != 0;
+   }
+
+   public static boolean exceedsCube(int rawId) {
+      return (current.flags[rawId] & EXCEEDS_CUBE) != 0;
+   }
+
+   public static boolean hasEmptyCollisionShape(int rawId) {
+      return (current.flags[rawId] & EMPTY_COLLISION_SHAPE) != 0;
+   }
+
+   public static boolean hasFullCubeCollisionShape(int rawId) {
+      return (current.flags[rawId] & FULL_CUBE_COLLISION_SHAPE) != 0;
+   }
+
+   public static int getOpacity(int rawId) {
+      return current.opacities[rawId];
+   }
+
+   public static boolean isSideSolid(int rawId, Direction direction, SideShapeType shapeType) {
+      return (current.solidSides[rawId] & 1 << indexSolidSide(direction, shapeType)) != 0;
+   }
+
+   @Nullable
+   public static VoxelShape getCollisionShape(int rawId) {
+      return current.collisionShapes[rawId];
+   }
+}
@@ -1025,6 +1025,7 @@ public class Blocks {
 
    public static void refreshShapeCache() {
       Block.STATE_IDS.forEach(AbstractBlock.AbstractBlockState::initShapeCache);
+      BlockStateTable.rebuild();
    }
 
    static {
@@ -8,6 +8,9 @@ public enum SamplingChannel {
    JVM("jvm"),
    CHUNK_RENDERING("chunk rendering"),
    CHUNK_RENDERING_DISPATCHING("chunk rendering dispatching"),
+   STORAGE("storage"),
+   LIGHTING("lighting"),
+   NETWORK("network"),
    CPU("cpu");
 
    private final String name;
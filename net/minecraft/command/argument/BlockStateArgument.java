@@ -9,6 +9,7 @@ import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.pattern.CachedBlockPosition;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtHelper;
+import net.minecraft.server.world.BlockEditBatch;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.state.property.Property;
 import net.minecraft.util.math.BlockPos;
@@ -62,26 +63,38 @@ public class BlockStateArgument implements Predicate<CachedBlockPosition> {
    }
 
    public boolean setBlockState(ServerWorld world, BlockPos pos, int flags) {
-      BlockState blockState = Block.postProcessState(this.state, world, pos);
-      if (blockState.isAir()) {
-         blockState = this.state;
-      }
-
-      if (!world.setBlockState(pos, blockState, flags)) {
+      if (!world.setBlockState(pos, this.getPlacedState(world, pos), flags)) {
          return false;
       } else {
-         if (this.data != null) {
-            BlockEntity blockEntity = world.getBlockEntity(pos);
-            if (blockEntity != null) {
-               NbtCompound nbtCompound = this.data.copy();
-               nbtCompound.putInt("x", pos.getX());
-               nbtCompound.putInt("y", pos.getY());
-               nbtCompound.putInt("z", pos.getZ());
-               blockEntity.readNbt(nbtCompound);
-            }
-         }
-
+         this.applyData(world, pos);
          return true;
       }
    }
+
+   /**
+    * Records this block in a batch. {@link #applyData} has to be called for the
+    * position once the batch has changed it.
+    */
+   public void setBlockState(BlockEditBatch batch, ServerWorld world, BlockPos pos) {
+      batch.set(pos, this.getPlacedState(world, pos));
+   }
+
+   private BlockState getPlacedState(ServerWorld world, BlockPos pos) {
+      BlockState blockState = Block.postProcessState(this.state, world, pos);
+      return blockState.isAir() ? this.state : blockState;
+   }
+
+   public void applyData(ServerWorld world, BlockPos pos) {
+      if (this.data != null) {
+         BlockEntity blockEntity = world.getBlockEntity(pos);
+         if (blockEntity != null) {
+            NbtCompound nbtCompound = this.data.copy();
+            nbtCompound.putInt("x", pos.getX());
+            nbtCompound.putInt("y", pos.getY());
+            nbtCompound.putInt("z", pos.getZ());
+            blockEntity.readNbt(nbtCompound);
+         }
+      }
+
+   }
 }
@@ -11,6 +11,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.DefaultEventLoopGroup;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -29,6 +30,8 @@ import io.netty.util.concurrent.GenericFutureListener;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.crypto.Cipher;
 import net.minecraft.network.encryption.PacketDecryptor;
 import net.minecraft.network.encryption.PacketEncryptor;
@@ -73,6 +76,8 @@ public class ClientConnection extends SimpleChannelInboundHandler<Packet<?>> {
    public static final Lazy<NioEventLoopGroup> CLIENT_IO_GROUP;
    public static final Lazy<EpollEventLoopGroup> EPOLL_CLIENT_IO_GROUP;
    public static final Lazy<DefaultEventLoopGroup> LOCAL_CLIENT_IO_GROUP;
+   private static volatile boolean consolidateFlushes;
+   private static volatile int flushThreshold = 32768;
    /**
     * The side this connection is to.
     */
@@ -90,11 +95,30 @@ public class ClientConnection extends SimpleChannelInboundHandler<Packet<?>> {
    private float averagePacketsSent;
    private int ticks;
    private boolean errored;
+   /**
+    * The number of packets written since the last flush. Only accessed on the
+    * event loop of the channel.
+    */
+   private int unflushedPackets;
+   private final AtomicInteger flushesCounter = new AtomicInteger();
+   private final AtomicInteger flushedPacketsCounter = new AtomicInteger();
+   private final AtomicLong flushedBytesCounter = new AtomicLong();
+   private float averagePacketsPerFlush;
+   private float averageBytesPerFlush;
 
    public ClientConnection(NetworkSide side) {
       this.side = side;
    }
 
+   /**
+    * Sets whether play packets are only written when sent, and flushed once per
+    * tick or once {@code threshold} bytes are waiting, instead of flushed one by one.
+    */
+   public static void setFlushConsolidation(boolean consolidate, int threshold) {
+      consolidateFlushes = consolidate;
+      flushThreshold = threshold;
+   }
+
    public void channelActive(ChannelHandlerContext context) throws Exception {
       super.channelActive(context);
       this.channel = context.channel();
@@ -194,7 +218,7 @@ public class ClientConnection extends SimpleChannelInboundHandler<Packet<?>> {
    }
 
    private void sendImmediately(Packet<?> packet, @Nullable GenericFutureListener<? extends Future<? super Void>> callback) {
-      NetworkState networkState = NetworkState.getPacketHandlerState(packet);
+      NetworkState networkState = NetworkState.getPacketHandlerState(packet instanceof SharedPacket ? ((SharedPacket)packet).getPacket() : packet);
       NetworkState networkState2 = this.getState();
       ++this.packetsSentCounter;
       if (networkState2 != networkState) {
@@ -217,12 +241,45 @@ public class ClientConnection extends SimpleChannelInboundHandler<Packet<?>> {
          this.setState(networkState);
       }
 
-      ChannelFuture channelFuture = this.channel.writeAndFlush(packet);
+      ChannelFuture channelFuture = this.channel.write(packet);
       if (callback != null) {
          channelFuture.addListener(callback);
       }
 
       channelFuture.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+      ++this.unflushedPackets;
+      if (!consolidateFlushes || callback != null || networkState != NetworkState.PLAY || this.getPendingWriteBytes() >= (long)flushThreshold) {
+         this.flushInternal();
+      }
+
+   }
+
+   /**
+    * Returns the number of bytes written to the channel that were not sent yet.
+    * Can be called from any thread.
+    */
+   public long getPendingWriteBytes() {
+      if (this.channel == null) {
+         return 0L;
+      }
+
+      ChannelOutboundBuffer channelOutboundBuffer = this.channel.unsafe().outboundBuffer();
+      return channelOutboundBuffer != null ? channelOutboundBuffer.totalPendingWriteBytes() : 0L;
+   }
+
+   /**
+    * Flushes the channel and records how many packets and bytes the flush
+    * carried. Must be called on the event loop of the channel.
+    */
+   private void flushInternal() {
+      if (this.unflushedPackets > 0) {
+         this.flushesCounter.incrementAndGet();
+         this.flushedPacketsCounter.addAndGet(this.unflushedPackets);
+         this.flushedBytesCounter.addAndGet(this.getPendingWriteBytes());
+         this.unflushedPackets = 0;
+      }
+
+      this.channel.flush();
    }
 
    /**
@@ -259,7 +316,11 @@ public class ClientConnection extends SimpleChannelInboundHandler<Packet<?>> {
       }
 
       if (this.channel != null) {
-         this.channel.flush();
+         if (this.channel.eventLoop().inEventLoop()) {
+            this.flushInternal();
+         } else {
+            this.channel.eventLoop().execute(this::flushInternal);
+         }
       }
 
       if (this.ticks++ % 20 == 0) {
@@ -273,6 +334,14 @@ public class ClientConnection extends SimpleChannelInboundHandler<Packet<?>> {
       this.averagePacketsReceived = MathHelper.lerp(0.75F, (float)this.packetsReceivedCounter, this.averagePacketsReceived);
       this.packetsSentCounter = 0;
       this.packetsReceivedCounter = 0;
+      int i = this.flushesCounter.getAndSet(0);
+      int j = this.flushedPacketsCounter.getAndSet(0);
+      long l = this.flushedBytesCounter.getAndSet(0L);
+      if (i > 0) {
+         this.averagePacketsPerFlush = MathHelper.lerp(0.75F, (float)j / (float)i, this.averagePacketsPerFlush);
+         this.averageBytesPerFlush = MathHelper.lerp(0.75F, (float)l / (float)i, this.averageBytesPerFlush);
+      }
+
    }
 
    public SocketAddress getAddress() {
@@ -398,6 +467,17 @@ public class ClientConnection extends SimpleChannelInboundHandler<Packet<?>> {
 
    }
 
+   /**
+    * Sets the compression level of the packets this connection sends, if it
+    * compresses them.
+    */
+   public void setCompressionLevel(int level) {
+      if (this.channel.pipeline().get("compress") instanceof PacketDeflater) {
+         ((PacketDeflater)this.channel.pipeline().get("compress")).setCompressionLevel(level);
+      }
+
+   }
+
    public void handleDisconnection() {
       if (this.channel != null && !this.channel.isOpen()) {
          if (this.disconnected) {
@@ -422,6 +502,14 @@ public class ClientConnection extends SimpleChannelInboundHandler<Packet<?>> {
       return this.averagePacketsSent;
    }
 
+   public float getAveragePacketsPerFlush() {
+      return this.averagePacketsPerFlush;
+   }
+
+   public float getAverageBytesPerFlush() {
+      return this.averageBytesPerFlush;
+   }
+
    static {
       NETWORK_PACKETS_MARKER = MarkerManager.getMarker("NETWORK_PACKETS", NETWORK_MARKER);
       PROTOCOL_ATTRIBUTE_KEY = AttributeKey.valueOf("protocol");
@@ -3,16 +3,41 @@ package net.minecraft.network;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
+import java.nio.ByteBuffer;
 import java.util.zip.Deflater;
 
+/**
+ * Compresses packets of at least the compression threshold.
+ *
+ * <p>The deflater reads the packet and writes into the output buffer through
+ * their NIO views, so direct buffers are compressed without being copied to
+ * the heap first.
+ */
 public class PacketDeflater extends MessageToByteEncoder<ByteBuf> {
-   private final byte[] deflateBuffer = new byte[8192];
+   private static final int MIN_WRITABLE_BYTES = 8192;
+   private static volatile int defaultCompressionLevel = -1;
    private final Deflater deflater;
    private int compressionThreshold;
+   private int compressionLevel;
 
    public PacketDeflater(int compressionThreshold) {
       this.compressionThreshold = compressionThreshold;
-      this.deflater = new Deflater();
+      this.compressionLevel = defaultCompressionLevel;
+      this.deflater = new Deflater(this.compressionLevel);
+   }
+
+   /**
+    * Sets the compression level of deflaters created from now on, from
+    * {@value Deflater#BEST_SPEED} to {@value Deflater#BEST_COMPRESSION}, or
+    * {@value Deflater#DEFAULT_COMPRESSION} for the zlib default.
+    */
+   public static void setDefaultCompressionLevel(int level) {
+      defaultCompressionLevel = level;
+   }
+
+   protected ByteBuf allocateBuffer(ChannelHandlerContext channelHandlerContext, ByteBuf byteBuf, boolean bl) {
+      int i = byteBuf.readableBytes() + 5;
+      return bl ? channelHandlerContext.alloc().ioBuffer(i) : channelHandlerContext.alloc().heapBuffer(i);
    }
 
    protected void encode(ChannelHandlerContext channelHandlerContext, ByteBuf byteBuf, ByteBuf byteBuf2) {
@@ -22,18 +47,19 @@ public class PacketDeflater extends MessageToByteEncoder<ByteBuf> {
          packetByteBuf.writeVarInt(0);
          packetByteBuf.writeBytes(byteBuf);
       } else {
-         byte[] bs = new byte[i];
-         byteBuf.readBytes(bs);
-         packetByteBuf.writeVarInt(bs.length);
-         this.deflater.setInput(bs, 0, i);
+         packetByteBuf.writeVarInt(i);
+         this.deflater.setInput(byteBuf.nioBuffer());
          this.deflater.finish();
 
          while(!this.deflater.finished()) {
-            int j = this.deflater.deflate(this.deflateBuffer);
-            packetByteBuf.writeBytes((byte[])this.deflateBuffer, 0, j);
+            byteBuf2.ensureWritable(MIN_WRITABLE_BYTES);
+            ByteBuffer byteBuffer = byteBuf2.nioBuffer(byteBuf2.writerIndex(), byteBuf2.writableBytes());
+            int j = this.deflater.deflate(byteBuffer);
+            byteBuf2.writerIndex(byteBuf2.writerIndex() + j);
          }
 
          this.deflater.reset();
+         byteBuf.skipBytes(i);
       }
 
    }
@@ -45,4 +71,16 @@ public class PacketDeflater extends MessageToByteEncoder<ByteBuf> {
    public void setCompressionThreshold(int compressionThreshold) {
       this.compressionThreshold = compressionThreshold;
    }
+
+   public int getCompressionLevel() {
+      return this.compressionLevel;
+   }
+
+   /**
+    * Sets the compression level used from the next packet on.
+    */
+   public void setCompressionLevel(int level) {
+      this.compressionLevel = level;
+      this.deflater.setLevel(level);
+   }
 }
@@ -1,13 +1,16 @@
 package net.minecraft.network;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderException;
 import java.util.List;
 import java.util.zip.Inflater;
 
+/**
+ * Decompresses packets sent compressed. The data is inflated straight into a
+ * pooled direct buffer.
+ */
 public class PacketInflater extends ByteToMessageDecoder {
    /**
     * The maximum size allowed for a compressed packet. Has value {@value}.
@@ -36,13 +39,29 @@ public class PacketInflater extends ByteToMessageDecoder {
                throw new DecoderException("Badly compressed packet - size of " + i + " is larger than protocol maximum of 2097152");
             }
 
-            byte[] bs = new byte[packetByteBuf.readableBytes()];
-            packetByteBuf.readBytes(bs);
-            this.inflater.setInput(bs);
-            byte[] cs = new byte[i];
-            this.inflater.inflate(cs);
-            list.add(Unpooled.wrappedBuffer(cs));
-            this.inflater.reset();
+            this.inflater.setInput(packetByteBuf.nioBuffer());
+            ByteBuf byteBuf2 = channelHandlerContext.alloc().directBuffer(i);
+
+            int j;
+            boolean bl;
+            try {
+               j = this.inflater.inflate(byteBuf2.nioBuffer(0, i));
+               bl = this.inflater.finished();
+            } catch (Exception var11) {
+               byteBuf2.release();
+               throw var11;
+            } finally {
+               this.inflater.reset();
+            }
+
+            if (j != i || !bl) {
+               byteBuf2.release();
+               throw new DecoderException("Badly compressed packet - declared size of " + i + " does not match the inflated data");
+            }
+
+            byteBuf2.writerIndex(i);
+            packetByteBuf.skipBytes(packetByteBuf.readableBytes());
+            list.add(byteBuf2);
          }
 
       }
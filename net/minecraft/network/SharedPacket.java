@@ -0,0 +1,117 @@
+package net.minecraft.network;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import net.minecraft.network.listener.PacketListener;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A packet sent to many connections, which is encoded once and compressed
+ * once per compression setting for all of them.
+ *
+ * <p>Remote connections write the cached bytes through {@link SharedPacketEncoder}.
+ * Elsewhere, such as on local connections, it behaves like the packet it wraps.
+ */
+public class SharedPacket<T extends PacketListener> implements Packet<T> {
+   private final Packet<T> packet;
+   @Nullable
+   private byte[] encoded;
+   /**
+    * The compressed frames by compression threshold and level.
+    */
+   private final Long2ObjectMap<byte[]> compressedFrames = new Long2ObjectOpenHashMap();
+
+   public SharedPacket(Packet<T> packet) {
+      this.packet = packet;
+   }
+
+   public Packet<T> getPacket() {
+      return this.packet;
+   }
+
+   public void write(PacketByteBuf buf) {
+      this.packet.write(buf);
+   }
+
+   public void apply(T listener) {
+      this.packet.apply(listener);
+   }
+
+   public boolean isWritingErrorSkippable() {
+      return this.packet.isWritingErrorSkippable();
+   }
+
+   /**
+    * Returns the bytes the encoder, and the compressor if {@code compressionThreshold}
+    * is not negative, would have produced for the packet.
+    */
+   public synchronized byte[] getFrame(NetworkState state, NetworkSide side, int compressionThreshold, int compressionLevel) throws IOException {
+      if (this.encoded == null) {
+         this.encoded = this.encode(state, side);
+      }
+
+      if (compressionThreshold < 0) {
+         return this.encoded;
+      } else {
+         long l = (long)compressionThreshold << 32 | ((long)compressionLevel & 4294967295L);
+         byte[] bs = (byte[])this.compressedFrames.get(l);
+         if (bs == null) {
+            bs = compress(this.encoded, compressionThreshold, compressionLevel);
+            this.compressedFrames.put(l, bs);
+         }
+
+         return bs;
+      }
+   }
+
+   private byte[] encode(NetworkState state, NetworkSide side) throws IOException {
+      Integer integer = state.getPacketId(side, this.packet);
+      if (integer == null) {
+         throw new IOException("Can't serialize unregistered packet");
+      } else {
+         PacketByteBuf packetByteBuf = new PacketByteBuf(Unpooled.buffer());
+         packetByteBuf.writeVarInt(integer);
+         int i = packetByteBuf.writerIndex();
+         this.packet.write(packetByteBuf);
+         int j = packetByteBuf.writerIndex() - i;
+         if (j > 2097152) {
+            throw new IllegalArgumentException("Packet too big (is " + j + ", should be less than 2097152): " + this.packet);
+         } else {
+            byte[] bs = new byte[packetByteBuf.readableBytes()];
+            packetByteBuf.readBytes(bs);
+            return bs;
+         }
+      }
+   }
+
+   private static byte[] compress(byte[] encoded, int compressionThreshold, int compressionLevel) {
+      PacketByteBuf packetByteBuf = new PacketByteBuf(Unpooled.buffer(encoded.length + 5));
+      if (encoded.length < compressionThreshold) {
+         packetByteBuf.writeVarInt(0);
+         packetByteBuf.writeBytes(encoded);
+      } else {
+         packetByteBuf.writeVarInt(encoded.length);
+         Deflater deflater = new Deflater(compressionLevel);
+
+         try {
+            deflater.setInput(encoded);
+            deflater.finish();
+
+            while(!deflater.finished()) {
+               packetByteBuf.ensureWritable(8192);
+               int i = deflater.deflate(packetByteBuf.array(), packetByteBuf.arrayOffset() + packetByteBuf.writerIndex(), packetByteBuf.writableBytes());
+               packetByteBuf.writerIndex(packetByteBuf.writerIndex() + i);
+            }
+         } finally {
+            deflater.end();
+         }
+      }
+
+      byte[] bs = new byte[packetByteBuf.readableBytes()];
+      packetByteBuf.readBytes(bs);
+      return bs;
+   }
+}
@@ -0,0 +1,42 @@
+package net.minecraft.network;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Writes the cached frame of a {@link SharedPacket} past the encoder and the
+ * compressor of the channel, so that neither runs again for it.
+ */
+public class SharedPacketEncoder extends ChannelOutboundHandlerAdapter {
+   private final NetworkSide side;
+
+   public SharedPacketEncoder(NetworkSide side) {
+      this.side = side;
+   }
+
+   public void write(ChannelHandlerContext channelHandlerContext, Object object, ChannelPromise channelPromise) throws Exception {
+      if (object instanceof SharedPacket) {
+         NetworkState networkState = (NetworkState)channelHandlerContext.channel().attr(ClientConnection.PROTOCOL_ATTRIBUTE_KEY).get();
+         ChannelHandlerContext channelHandlerContext2 = channelHandlerContext.pipeline().context("compress");
+         ChannelHandlerContext channelHandlerContext3 = channelHandlerContext.pipeline().context("encoder");
+         if (networkState != null && channelHandlerContext3 != null) {
+            byte[] bs;
+            if (channelHandlerContext2 != null && channelHandlerContext2.handler() instanceof PacketDeflater) {
+               PacketDeflater packetDeflater = (PacketDeflater)channelHandlerContext2.handler();
+               bs = ((SharedPacket)object).getFrame(networkState, this.side, packetDeflater.getCompressionThreshold(), packetDeflater.getCompressionLevel());
+               channelHandlerContext2.write(Unpooled.wrappedBuffer(bs), channelPromise);
+            } else {
+               bs = ((SharedPacket)object).getFrame(networkState, this.side, -1, -1);
+               channelHandlerContext3.write(Unpooled.wrappedBuffer(bs), channelPromise);
+            }
+         } else {
+            channelHandlerContext.write(((SharedPacket)object).getPacket(), channelPromise);
+         }
+      } else {
+         channelHandlerContext.write(object, channelPromise);
+      }
+
+   }
+}
@@ -57,7 +57,7 @@ public class LightUpdateS2CPacket implements Packet<ClientPlayPacketListener> {
             bitSet2.set(i);
          } else {
             bitSet.set(i);
-            list.add((byte[])chunkNibbleArray.asByteArray().clone());
+            list.add(chunkNibbleArray.copyByteArray());
          }
       }
 
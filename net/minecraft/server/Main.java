@@ -24,6 +24,8 @@ import net.minecraft.SharedConstants;
 import net.minecraft.datafixer.Schemas;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.nbt.NbtOps;
+import net.minecraft.network.ClientConnection;
+import net.minecraft.network.PacketDeflater;
 import net.minecraft.obfuscate.DontObfuscate;
 import net.minecraft.resource.DataPackSettings;
 import net.minecraft.resource.FileResourcePackProvider;
@@ -38,6 +40,11 @@ import net.minecraft.server.dedicated.EulaReader;
 import net.minecraft.server.dedicated.MinecraftDedicatedServer;
 import net.minecraft.server.dedicated.ServerPropertiesHandler;
 import net.minecraft.server.dedicated.ServerPropertiesLoader;
+import net.minecraft.server.network.ServerLoginNetworkHandler;
+import net.minecraft.server.world.ChunkPregenerator;
+import net.minecraft.server.world.ServerLightingProvider;
+import net.minecraft.server.world.ServerTickScheduler;
+import net.minecraft.server.world.ThreadedAnvilChunkStorage;
 import net.minecraft.text.Text;
 import net.minecraft.util.UserCache;
 import net.minecraft.util.Util;
@@ -51,11 +58,15 @@ import net.minecraft.util.registry.RegistryKey;
 import net.minecraft.world.GameRules;
 import net.minecraft.world.SaveProperties;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.light.ChunkBlockLightProvider;
 import net.minecraft.world.gen.GeneratorOptions;
+import net.minecraft.world.gen.chunk.NoiseChunkGenerator;
 import net.minecraft.world.level.LevelInfo;
 import net.minecraft.world.level.LevelProperties;
 import net.minecraft.world.level.storage.LevelStorage;
 import net.minecraft.world.level.storage.LevelSummary;
+import net.minecraft.world.storage.ChunkStreamVersion;
+import net.minecraft.world.storage.StorageIoWorker;
 import net.minecraft.world.updater.WorldUpdater;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -81,6 +92,7 @@ public class Main {
       OptionSpec<Integer> optionSpec12 = optionParser.accepts("port").withRequiredArg().ofType(Integer.class).defaultsTo(-1);
       OptionSpec<String> optionSpec13 = optionParser.accepts("serverId").withRequiredArg();
       NonOptionArgumentSpec optionSpec14 = optionParser.nonOptions();
+      OptionSpec<Void> optionSpec15 = optionParser.accepts("recompressChunks", "Rewrites every chunk with the configured region-file-compression");
 
       try {
          OptionSet optionSet = optionParser.parse(args);
@@ -109,6 +121,20 @@ public class Main {
             return;
          }
 
+         ChunkStreamVersion.setCurrent(serverPropertiesLoader.getPropertiesHandler().regionFileCompression);
+         StorageIoWorker.setLaneCount(serverPropertiesLoader.getPropertiesHandler().storageIoLanes);
+         StorageIoWorker.setParallelReads(serverPropertiesLoader.getPropertiesHandler().regionFileParallelReads);
+         ChunkPregenerator.setConcurrency(serverPropertiesLoader.getPropertiesHandler().pregenerationConcurrency);
+         NoiseChunkGenerator.setParallelNoise(serverPropertiesLoader.getPropertiesHandler().parallelNoisePopulation);
+         ChunkBlockLightProvider.setQueueLightSources(serverPropertiesLoader.getPropertiesHandler().blockLightSourceBfs);
+         ServerLightingProvider.setParallelUpdates(serverPropertiesLoader.getPropertiesHandler().parallelLightUpdates);
+         ServerTickScheduler.setMaxTicksPerTick(serverPropertiesLoader.getPropertiesHandler().maxScheduledTicksPerTick);
+         ThreadedAnvilChunkStorage.setParallelEntityTracking(serverPropertiesLoader.getPropertiesHandler().parallelEntityTracking);
+         ClientConnection.setFlushConsolidation(serverPropertiesLoader.getPropertiesHandler().consolidatePacketFlushes, serverPropertiesLoader.getPropertiesHandler().packetFlushThreshold);
+         PacketDeflater.setDefaultCompressionLevel(serverPropertiesLoader.getPropertiesHandler().networkCompressionLevel);
+         ServerLoginNetworkHandler.setOfferFastCompression(serverPropertiesLoader.getPropertiesHandler().offerFastNetworkCompression);
+         ThreadedAnvilChunkStorage.setShareChunkPackets(serverPropertiesLoader.getPropertiesHandler().shareChunkPackets);
+         ThreadedAnvilChunkStorage.setChunkSendBudget(serverPropertiesLoader.getPropertiesHandler().chunkSendBudget);
          File file = new File((String)optionSet.valueOf((OptionSpec)optionSpec10));
          YggdrasilAuthenticationService yggdrasilAuthenticationService = new YggdrasilAuthenticationService(Proxy.NO_PROXY);
          MinecraftSessionService minecraftSessionService = yggdrasilAuthenticationService.createMinecraftSessionService();
@@ -162,8 +188,8 @@ public class Main {
             saveProperties = new LevelProperties(levelInfo2, generatorOptions2, Lifecycle.stable());
          }
 
-         if (optionSet.has((OptionSpec)optionSpec5)) {
-            forceUpgradeWorld(session, Schemas.getFixer(), optionSet.has((OptionSpec)optionSpec6), () -> {
+         if (optionSet.has((OptionSpec)optionSpec5) || optionSet.has((OptionSpec)optionSpec15)) {
+            forceUpgradeWorld(session, Schemas.getFixer(), optionSet.has((OptionSpec)optionSpec6), optionSet.has((OptionSpec)optionSpec15), () -> {
                return true;
             }, ((SaveProperties)saveProperties).getGeneratorOptions().getWorlds());
          }
@@ -195,9 +221,9 @@ public class Main {
 
    }
 
-   private static void forceUpgradeWorld(LevelStorage.Session session, DataFixer dataFixer, boolean eraseCache, BooleanSupplier booleanSupplier, ImmutableSet<RegistryKey<World>> worlds) {
+   private static void forceUpgradeWorld(LevelStorage.Session session, DataFixer dataFixer, boolean eraseCache, boolean recompress, BooleanSupplier booleanSupplier, ImmutableSet<RegistryKey<World>> worlds) {
       LOGGER.info("Forcing world upgrade!");
-      WorldUpdater worldUpdater = new WorldUpdater(session, dataFixer, worlds, eraseCache);
+      WorldUpdater worldUpdater = new WorldUpdater(session, dataFixer, worlds, eraseCache, recompress);
       Text text = null;
 
       while(!worldUpdater.isDone()) {
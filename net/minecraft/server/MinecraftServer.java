@@ -12,6 +12,7 @@ import com.mojang.datafixers.DataFixer;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import java.awt.GraphicsEnvironment;
 import java.awt.image.BufferedImage;
@@ -38,6 +39,7 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -199,6 +201,11 @@ public abstract class MinecraftServer extends ReentrantThreadExecutor<ServerTask
    public static final int MAX_WORLD_BORDER_RADIUS = 29999984;
    public static final LevelInfo DEMO_LEVEL_INFO;
    private static final long MILLISECONDS_PER_TICK = 50L;
+   /**
+    * The number of ticks between the progress reports of a running incremental
+    * autosave. Has value {@value}.
+    */
+   private static final int INCREMENTAL_SAVE_PROGRESS_INTERVAL = 200;
    protected final LevelStorage.Session session;
    protected final WorldSaveHandler saveHandler;
    private final Snooper snooper = new Snooper("server", this, Util.getMeasuringTimeMs());
@@ -224,6 +231,9 @@ public abstract class MinecraftServer extends ReentrantThreadExecutor<ServerTask
    private volatile boolean running;
    private boolean stopped;
    private int ticks;
+   private boolean incrementalSaveRunning;
+   private int incrementalSaveStartTick;
+   private final LongArrayList incrementalSaveTickTimes = new LongArrayList();
    protected final Proxy proxy;
    private boolean onlineMode;
    private boolean preventProxyConnections;
@@ -629,12 +639,88 @@ public abstract class MinecraftServer extends ReentrantThreadExecutor<ServerTask
          serverWorld.save((ProgressListener)null, flush, serverWorld.savingDisabled && !force);
       }
 
-      ServerWorld serverWorld2 = this.getOverworld();
+      this.saveLevelProperties();
+      return bl;
+   }
+
+   private void saveLevelProperties() {
+      ServerWorld serverWorld = this.getOverworld();
       ServerWorldProperties serverWorldProperties = this.saveProperties.getMainWorldProperties();
-      serverWorldProperties.setWorldBorder(serverWorld2.getWorldBorder().write());
+      serverWorldProperties.setWorldBorder(serverWorld.getWorldBorder().write());
       this.saveProperties.setCustomBossEvents(this.getBossBarManager().toNbt());
       this.session.backupLevelDataFile(this.registryManager, this.saveProperties, this.getPlayerManager().getUserData());
-      return bl;
+   }
+
+   /**
+    * Starts an incremental autosave, which saves the chunks of all worlds over the
+    * following ticks within the {@linkplain #getIncrementalAutosaveBudget() per-tick budget}.
+    */
+   private void startIncrementalSave() {
+      if (this.incrementalSaveRunning) {
+         LOGGER.warn((String)"Incremental autosave did not finish within {} ticks ({}% done), restarting it", (int)(this.ticks - this.incrementalSaveStartTick), (int)(this.getIncrementalSaveProgress() * 100.0F));
+      }
+
+      Iterator var1 = this.getWorlds().iterator();
+
+      while(var1.hasNext()) {
+         ServerWorld serverWorld = (ServerWorld)var1.next();
+         serverWorld.startIncrementalSave();
+      }
+
+      this.saveLevelProperties();
+      this.incrementalSaveRunning = true;
+      this.incrementalSaveStartTick = this.ticks;
+      this.incrementalSaveTickTimes.clear();
+   }
+
+   private void tickIncrementalSave() {
+      long l = Util.getMeasuringTimeNano();
+      long m = l + (long)this.getIncrementalAutosaveBudget() * 1000000L;
+      boolean bl = true;
+
+      ServerWorld serverWorld;
+      for(Iterator var6 = this.getWorlds().iterator(); var6.hasNext(); bl &= serverWorld.tickIncrementalSave(m)) {
+         serverWorld = (ServerWorld)var6.next();
+      }
+
+      this.incrementalSaveTickTimes.add(Util.getMeasuringTimeNano() - l);
+      if (bl) {
+         this.incrementalSaveRunning = false;
+         int i = 0;
+
+         for(Iterator var8 = this.getWorlds().iterator(); var8.hasNext(); i += serverWorld.getChunkManager().getIncrementalSavedCount()) {
+            serverWorld = (ServerWorld)var8.next();
+         }
+
+         long[] ls = this.incrementalSaveTickTimes.toLongArray();
+         Arrays.sort(ls);
+         long n = ls[Math.min(ls.length - 1, (int)Math.ceil((double)ls.length * 0.99D) - 1)];
+         LOGGER.info((String)"Incremental autosave saved {} chunks over {} ticks, p99 tick impact {} ms", i, ls.length, String.format(Locale.ROOT, "%.2f", (double)n / 1000000.0D));
+      } else if (this.incrementalSaveTickTimes.size() % INCREMENTAL_SAVE_PROGRESS_INTERVAL == 0) {
+         LOGGER.info((String)"Incremental autosave {}% done after {} ticks", (int)(this.getIncrementalSaveProgress() * 100.0F), this.incrementalSaveTickTimes.size());
+      }
+
+   }
+
+   /**
+    * {@return the fraction of queued chunks the running incremental autosave has gone through,
+    * or {@code 1} if none is running}
+    */
+   private float getIncrementalSaveProgress() {
+      if (!this.incrementalSaveRunning) {
+         return 1.0F;
+      } else {
+         int i = 0;
+         int j = 0;
+
+         ServerChunkManager serverChunkManager;
+         for(Iterator var3 = this.getWorlds().iterator(); var3.hasNext(); j += serverChunkManager.getIncrementalSaveQueueSize()) {
+            serverChunkManager = ((ServerWorld)var3.next()).getChunkManager();
+            i += serverChunkManager.getIncrementalSaveProgress();
+         }
+
+         return j == 0 ? 1.0F : (float)i / (float)j;
+      }
    }
 
    public void close() {
@@ -903,11 +989,22 @@ public abstract class MinecraftServer extends ReentrantThreadExecutor<ServerTask
          LOGGER.debug("Autosave started");
          this.profiler.push("save");
          this.playerManager.saveAllPlayerData();
-         this.save(true, false, false);
+         if (this.getIncrementalAutosaveBudget() > 0) {
+            this.startIncrementalSave();
+         } else {
+            this.save(true, false, false);
+         }
+
          this.profiler.pop();
          LOGGER.debug("Autosave finished");
       }
 
+      if (this.incrementalSaveRunning) {
+         this.profiler.push("incrementalSave");
+         this.tickIncrementalSave();
+         this.profiler.pop();
+      }
+
       this.profiler.push("snooper");
       if (!this.snooper.isActive() && this.ticks > 100) {
          this.snooper.method_5482();
@@ -1829,6 +1926,14 @@ public abstract class MinecraftServer extends ReentrantThreadExecutor<ServerTask
       return true;
    }
 
+   /**
+    * {@return the time in milliseconds each tick may spend on saving chunks during
+    * an autosave, or {@code 0} to save all chunks at once}
+    */
+   public int getIncrementalAutosaveBudget() {
+      return 0;
+   }
+
    public StructureManager getStructureManager() {
       return this.structureManager;
    }
@@ -2,6 +2,7 @@ package net.minecraft.server;
 
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.collect.ImmutableList;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
@@ -30,12 +31,16 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import net.minecraft.client.util.profiler.SamplingChannel;
+import net.minecraft.client.util.profiler.SamplingRecorder;
 import net.minecraft.network.ClientConnection;
 import net.minecraft.network.DecoderHandler;
 import net.minecraft.network.LegacyQueryHandler;
 import net.minecraft.network.NetworkSide;
 import net.minecraft.network.PacketEncoder;
 import net.minecraft.network.RateLimitedConnection;
+import net.minecraft.network.SharedPacketEncoder;
 import net.minecraft.network.SizePrepender;
 import net.minecraft.network.SplitterHandler;
 import net.minecraft.network.packet.s2c.play.DisconnectS2CPacket;
@@ -46,11 +51,13 @@ import net.minecraft.text.Text;
 import net.minecraft.util.Lazy;
 import net.minecraft.util.crash.CrashException;
 import net.minecraft.util.crash.CrashReport;
+import net.minecraft.util.profiler.MetricSamplerSupplier;
+import net.minecraft.util.profiler.MetricSuppliers;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
 
-public class ServerNetworkIo {
+public class ServerNetworkIo implements MetricSamplerSupplier {
    private static final Logger LOGGER = LogManager.getLogger();
    public static final Lazy<NioEventLoopGroup> DEFAULT_CHANNEL = new Lazy(() -> {
       return new NioEventLoopGroup(0, (new ThreadFactoryBuilder()).setNameFormat("Netty Server IO #%d").setDaemon(true).build());
@@ -66,6 +73,7 @@ public class ServerNetworkIo {
    public ServerNetworkIo(MinecraftServer server) {
       this.server = server;
       this.active = true;
+      MetricSuppliers.INSTANCE.add(this);
    }
 
    public void bind(@Nullable InetAddress address, int port) throws IOException {
@@ -89,7 +97,7 @@ public class ServerNetworkIo {
                } catch (ChannelException var4) {
                }
 
-               channel.pipeline().addLast((String)"timeout", (ChannelHandler)(new ReadTimeoutHandler(30))).addLast((String)"legacy_query", (ChannelHandler)(new LegacyQueryHandler(ServerNetworkIo.this))).addLast((String)"splitter", (ChannelHandler)(new SplitterHandler())).addLast((String)"decoder", (ChannelHandler)(new DecoderHandler(NetworkSide.SERVERBOUND))).addLast((String)"prepender", (ChannelHandler)(new SizePrepender())).addLast((String)"encoder", (ChannelHandler)(new PacketEncoder(NetworkSide.CLIENTBOUND)));
+               channel.pipeline().addLast((String)"timeout", (ChannelHandler)(new ReadTimeoutHandler(30))).addLast((String)"legacy_query", (ChannelHandler)(new LegacyQueryHandler(ServerNetworkIo.this))).addLast((String)"splitter", (ChannelHandler)(new SplitterHandler())).addLast((String)"decoder", (ChannelHandler)(new DecoderHandler(NetworkSide.SERVERBOUND))).addLast((String)"prepender", (ChannelHandler)(new SizePrepender())).addLast((String)"encoder", (ChannelHandler)(new PacketEncoder(NetworkSide.CLIENTBOUND))).addLast((String)"shared_encoder", (ChannelHandler)(new SharedPacketEncoder(NetworkSide.CLIENTBOUND)));
                int i = ServerNetworkIo.this.server.getRateLimit();
                ClientConnection clientConnection = i > 0 ? new RateLimitedConnection(i) : new ClientConnection(NetworkSide.SERVERBOUND);
                ServerNetworkIo.this.connections.add(clientConnection);
@@ -172,6 +180,31 @@ public class ServerNetworkIo {
       }
    }
 
+   public List<SamplingRecorder> getSamplers() {
+      return ImmutableList.of(SamplingRecorder.create("packets-per-flush", SamplingChannel.NETWORK, () -> {
+         return this.getConnectionAverage(ClientConnection::getAveragePacketsPerFlush);
+      }), SamplingRecorder.create("bytes-per-flush", SamplingChannel.NETWORK, () -> {
+         return this.getConnectionAverage(ClientConnection::getAverageBytesPerFlush);
+      }));
+   }
+
+   private double getConnectionAverage(ToDoubleFunction<ClientConnection> getter) {
+      synchronized(this.connections) {
+         if (this.connections.isEmpty()) {
+            return 0.0D;
+         } else {
+            double d = 0.0D;
+
+            ClientConnection clientConnection;
+            for(Iterator var4 = this.connections.iterator(); var4.hasNext(); d += getter.applyAsDouble(clientConnection)) {
+               clientConnection = (ClientConnection)var4.next();
+            }
+
+            return d / (double)this.connections.size();
+         }
+      }
+   }
+
    public MinecraftServer getServer() {
       return this.server;
    }
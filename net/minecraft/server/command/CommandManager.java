@@ -92,6 +92,7 @@ public class CommandManager {
       MessageCommand.register(this.dispatcher);
       ParticleCommand.register(this.dispatcher);
       PlaySoundCommand.register(this.dispatcher);
+      PregenerateCommand.register(this.dispatcher);
       ReloadCommand.register(this.dispatcher);
       RecipeCommand.register(this.dispatcher);
       SayCommand.register(this.dispatcher);
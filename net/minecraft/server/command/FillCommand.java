@@ -1,15 +1,15 @@
 package net.minecraft.server.command;
 
-import com.google.common.collect.Lists;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.builder.RequiredArgumentBuilder;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.brigadier.exceptions.Dynamic2CommandExceptionType;
 import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongListIterator;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
 import java.util.function.Predicate;
 import net.minecraft.block.Block;
 import net.minecraft.block.Blocks;
@@ -20,6 +20,7 @@ import net.minecraft.command.argument.BlockPredicateArgumentType;
 import net.minecraft.command.argument.BlockStateArgument;
 import net.minecraft.command.argument.BlockStateArgumentType;
 import net.minecraft.nbt.NbtCompound;
+import net.minecraft.server.world.BlockEditBatch;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.TranslatableText;
 import net.minecraft.util.Clearable;
@@ -62,23 +63,32 @@ public class FillCommand {
       if (i > 32768) {
          throw TOO_BIG_EXCEPTION.create(32768, i);
       } else {
-         List<BlockPos> list = Lists.newArrayList();
          ServerWorld serverWorld = source.getWorld();
-         int j = 0;
-         Iterator var9 = BlockPos.iterate(range.getMinX(), range.getMinY(), range.getMinZ(), range.getMaxX(), range.getMaxY(), range.getMaxZ()).iterator();
+         BlockEditBatch blockEditBatch = new BlockEditBatch(serverWorld, Block.NOTIFY_LISTENERS);
+         Iterator var8 = BlockPos.iterate(range.getMinX(), range.getMinY(), range.getMinZ(), range.getMaxX(), range.getMaxY(), range.getMaxZ()).iterator();
 
          while(true) {
             BlockPos blockPos;
             do {
-               if (!var9.hasNext()) {
-                  var9 = list.iterator();
+               if (!var8.hasNext()) {
+                  LongList longList = blockEditBatch.apply();
+                  BlockPos.Mutable mutable = new BlockPos.Mutable();
+                  LongListIterator longListIterator = longList.iterator();
 
-                  while(var9.hasNext()) {
-                     blockPos = (BlockPos)var9.next();
-                     Block block2 = serverWorld.getBlockState(blockPos).getBlock();
-                     serverWorld.updateNeighbors(blockPos, block2);
+                  while(longListIterator.hasNext()) {
+                     mutable.set(longListIterator.nextLong());
+                     block.applyData(serverWorld, mutable);
                   }
 
+                  longListIterator = longList.iterator();
+
+                  while(longListIterator.hasNext()) {
+                     mutable.set(longListIterator.nextLong());
+                     Block block2 = serverWorld.getBlockState(mutable).getBlock();
+                     serverWorld.updateNeighbors(mutable, block2);
+                  }
+
+                  int j = longList.size();
                   if (j == 0) {
                      throw FAILED_EXCEPTION.create();
                   }
@@ -87,17 +97,14 @@ public class FillCommand {
                   return j;
                }
 
-               blockPos = (BlockPos)var9.next();
+               blockPos = (BlockPos)var8.next();
             } while(filter != null && !filter.test(new CachedBlockPosition(serverWorld, blockPos, true)));
 
             BlockStateArgument blockStateArgument = mode.filter.filter(range, blockPos, block, serverWorld);
             if (blockStateArgument != null) {
                BlockEntity blockEntity = serverWorld.getBlockEntity(blockPos);
                Clearable.clear(blockEntity);
-               if (blockStateArgument.setBlockState(serverWorld, blockPos, Block.NOTIFY_LISTENERS)) {
-                  list.add(blockPos.toImmutable());
-                  ++j;
-               }
+               blockStateArgument.setBlockState(blockEditBatch, serverWorld, blockPos);
             }
          }
       }
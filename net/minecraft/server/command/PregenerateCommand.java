@@ -0,0 +1,74 @@
+package net.minecraft.server.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
+import java.util.Locale;
+import net.minecraft.command.argument.ColumnPosArgumentType;
+import net.minecraft.server.world.ChunkPregenerator;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.LiteralText;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.ColumnPos;
+
+public class PregenerateCommand {
+   private static final int MAX_RADIUS = 1875000;
+   private static final SimpleCommandExceptionType RUNNING_EXCEPTION = new SimpleCommandExceptionType(new LiteralText("A pre-generation task is already running in this dimension"));
+   private static final SimpleCommandExceptionType NOT_RUNNING_EXCEPTION = new SimpleCommandExceptionType(new LiteralText("No pre-generation task is running in this dimension"));
+
+   public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
+      dispatcher.register((LiteralArgumentBuilder)((LiteralArgumentBuilder)((LiteralArgumentBuilder)((LiteralArgumentBuilder)CommandManager.literal("pregenerate").requires((source) -> {
+         return source.hasPermissionLevel(2);
+      })).then(CommandManager.literal("start").then(addShape("square", false)).then(addShape("circle", true)))).then(CommandManager.literal("stop").executes((context) -> {
+         return executeStop((ServerCommandSource)context.getSource());
+      }))).then(CommandManager.literal("query").executes((context) -> {
+         return executeQuery((ServerCommandSource)context.getSource());
+      })));
+   }
+
+   private static LiteralArgumentBuilder<ServerCommandSource> addShape(String name, boolean circular) {
+      return (LiteralArgumentBuilder)CommandManager.literal(name).then(((RequiredArgumentBuilder)CommandManager.argument("radius", IntegerArgumentType.integer(0, MAX_RADIUS)).executes((context) -> {
+         return executeStart((ServerCommandSource)context.getSource(), new ChunkPos(new BlockPos(((ServerCommandSource)context.getSource()).getPosition())), IntegerArgumentType.getInteger(context, "radius"), circular);
+      })).then(CommandManager.argument("center", ColumnPosArgumentType.columnPos()).executes((context) -> {
+         ColumnPos columnPos = ColumnPosArgumentType.getColumnPos(context, "center");
+         return executeStart((ServerCommandSource)context.getSource(), new ChunkPos(ChunkSectionPos.getSectionCoord(columnPos.x), ChunkSectionPos.getSectionCoord(columnPos.z)), IntegerArgumentType.getInteger(context, "radius"), circular);
+      })));
+   }
+
+   private static int executeStart(ServerCommandSource source, ChunkPos center, int radius, boolean circular) throws CommandSyntaxException {
+      ServerWorld serverWorld = source.getWorld();
+      if (!serverWorld.getPregenerator().start(center, radius, circular)) {
+         throw RUNNING_EXCEPTION.create();
+      } else {
+         source.sendFeedback(new LiteralText(String.format(Locale.ROOT, "Started pre-generating chunks within %d chunks of %s in %s", radius, center, serverWorld.getRegistryKey().getValue())), true);
+         return 1;
+      }
+   }
+
+   private static int executeStop(ServerCommandSource source) throws CommandSyntaxException {
+      ServerWorld serverWorld = source.getWorld();
+      if (!serverWorld.getPregenerator().stop()) {
+         throw NOT_RUNNING_EXCEPTION.create();
+      } else {
+         source.sendFeedback(new LiteralText("Stopped pre-generating chunks in " + serverWorld.getRegistryKey().getValue()), true);
+         return 1;
+      }
+   }
+
+   private static int executeQuery(ServerCommandSource source) throws CommandSyntaxException {
+      ServerWorld serverWorld = source.getWorld();
+      ChunkPregenerator.Task task = serverWorld.getPregenerator().getTask();
+      if (task == null) {
+         throw NOT_RUNNING_EXCEPTION.create();
+      } else {
+         int i = (int)(task.getIndex() * 100L / Math.max(1L, task.getChunkCount()));
+         source.sendFeedback(new LiteralText(String.format(Locale.ROOT, "Pre-generating %s: %d%% (%d of %d chunks), %.1f chunks/s, %d in flight", serverWorld.getRegistryKey().getValue(), i, task.getIndex(), task.getChunkCount(), task.getChunksPerSecond(), task.getInFlightCount())), false);
+         return i;
+      }
+   }
+}
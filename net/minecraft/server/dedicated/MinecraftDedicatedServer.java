@@ -567,6 +567,10 @@ public class MinecraftDedicatedServer extends MinecraftServer implements Dedicat
       return this.propertiesLoader.getPropertiesHandler().syncChunkWrites;
    }
 
+   public int getIncrementalAutosaveBudget() {
+      return this.propertiesLoader.getPropertiesHandler().incrementalAutosaveBudget;
+   }
+
    public TextStream createFilterer(ServerPlayerEntity player) {
       return this.filterer != null ? this.filterer.createFilterer(player.getGameProfile()) : TextStream.UNFILTERED;
    }
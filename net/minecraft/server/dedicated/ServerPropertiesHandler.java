@@ -8,6 +8,7 @@ import net.minecraft.util.registry.DynamicRegistryManager;
 import net.minecraft.world.Difficulty;
 import net.minecraft.world.GameMode;
 import net.minecraft.world.gen.GeneratorOptions;
+import net.minecraft.world.storage.ChunkStreamVersion;
 import org.jetbrains.annotations.Nullable;
 
 public class ServerPropertiesHandler extends AbstractPropertiesHandler<ServerPropertiesHandler> {
@@ -54,6 +55,22 @@ public class ServerPropertiesHandler extends AbstractPropertiesHandler<ServerPro
    public final boolean broadcastConsoleToOps;
    public final int maxWorldSize;
    public final boolean syncChunkWrites;
+   public final ChunkStreamVersion regionFileCompression;
+   public final boolean regionFileParallelReads;
+   public final int storageIoLanes;
+   public final int incrementalAutosaveBudget;
+   public final int pregenerationConcurrency;
+   public final boolean parallelNoisePopulation;
+   public final boolean blockLightSourceBfs;
+   public final boolean parallelLightUpdates;
+   public final int maxScheduledTicksPerTick;
+   public final boolean parallelEntityTracking;
+   public final boolean consolidatePacketFlushes;
+   public final int packetFlushThreshold;
+   public final int networkCompressionLevel;
+   public final boolean offerFastNetworkCompression;
+   public final boolean shareChunkPackets;
+   public final int chunkSendBudget;
    public final boolean enableJmxMonitoring;
    public final boolean enableStatus;
    public final int entityBroadcastRangePercentage;
@@ -100,6 +117,36 @@ public class ServerPropertiesHandler extends AbstractPropertiesHandler<ServerPro
          return MathHelper.clamp((int)maxWorldSize, (int)1, (int)29999984);
       }, 29999984);
       this.syncChunkWrites = this.parseBoolean("sync-chunk-writes", true);
+      this.regionFileCompression = (ChunkStreamVersion)this.get("region-file-compression", ChunkStreamVersion::byName, ChunkStreamVersion::getName, ChunkStreamVersion.DEFLATE);
+      this.regionFileParallelReads = this.parseBoolean("region-file-parallel-reads", false);
+      this.storageIoLanes = this.transformedParseInt("storage-io-lanes", (lanes) -> {
+         return MathHelper.clamp((int)lanes, (int)1, (int)16);
+      }, 1);
+      this.incrementalAutosaveBudget = this.transformedParseInt("incremental-autosave-budget-ms", (budget) -> {
+         return MathHelper.clamp((int)budget, (int)0, (int)50);
+      }, 0);
+      this.pregenerationConcurrency = this.transformedParseInt("pregeneration-concurrency", (concurrency) -> {
+         return MathHelper.clamp((int)concurrency, (int)1, (int)256);
+      }, 16);
+      this.parallelNoisePopulation = this.parseBoolean("parallel-noise-population", false);
+      this.blockLightSourceBfs = this.parseBoolean("block-light-source-bfs", false);
+      this.parallelLightUpdates = this.parseBoolean("parallel-light-updates", false);
+      this.maxScheduledTicksPerTick = this.transformedParseInt("max-scheduled-ticks-per-tick", (max) -> {
+         return Math.max(max, 1);
+      }, 65536);
+      this.parallelEntityTracking = this.parseBoolean("parallel-entity-tracking", false);
+      this.consolidatePacketFlushes = this.parseBoolean("consolidate-packet-flushes", false);
+      this.packetFlushThreshold = this.transformedParseInt("packet-flush-threshold", (threshold) -> {
+         return Math.max(threshold, 0);
+      }, 32768);
+      this.networkCompressionLevel = this.transformedParseInt("network-compression-level", (level) -> {
+         return MathHelper.clamp((int)level, (int)-1, (int)9);
+      }, -1);
+      this.offerFastNetworkCompression = this.parseBoolean("offer-fast-network-compression", false);
+      this.shareChunkPackets = this.parseBoolean("share-chunk-packets", false);
+      this.chunkSendBudget = this.transformedParseInt("chunk-send-budget", (budget) -> {
+         return Math.max(budget, 0);
+      }, 0);
       this.enableJmxMonitoring = this.parseBoolean("enable-jmx-monitoring", false);
       this.enableStatus = this.parseBoolean("enable-status", true);
       this.entityBroadcastRangePercentage = this.transformedParseInt("entity-broadcast-range-percentage", (percentage) -> {
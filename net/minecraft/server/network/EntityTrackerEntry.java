@@ -60,6 +60,13 @@ public class EntityTrackerEntry {
    private List<Entity> lastPassengers;
    private boolean hadVehicle;
    private boolean lastOnGround;
+   /**
+    * Whether {@link #tick} collects its packets in {@link #pendingPackets} and
+    * {@link #pendingSelfPackets} instead of sending them.
+    */
+   private boolean deferPackets;
+   private final List<Packet<?>> pendingPackets = Lists.newArrayList();
+   private final List<Packet<?>> pendingSelfPackets = Lists.newArrayList();
 
    public EntityTrackerEntry(ServerWorld world, Entity entity, int tickInterval, boolean alwaysUpdateVelocity, Consumer<Packet<?>> receiver) {
       this.velocity = Vec3d.ZERO;
@@ -80,7 +87,7 @@ public class EntityTrackerEntry {
       List<Entity> list = this.entity.getPassengerList();
       if (!list.equals(this.lastPassengers)) {
          this.lastPassengers = list;
-         this.receiver.accept(new EntityPassengersSetS2CPacket(this.entity));
+         this.send(new EntityPassengersSetS2CPacket(this.entity));
       }
 
       if (this.entity instanceof ItemFrameEntity && this.trackingTick % 10 == 0) {
@@ -114,7 +121,7 @@ public class EntityTrackerEntry {
             l = MathHelper.floor(this.entity.getPitch() * 256.0F / 360.0F);
             boolean bl = Math.abs(k - this.lastYaw) >= 1 || Math.abs(l - this.lastPitch) >= 1;
             if (bl) {
-               this.receiver.accept(new EntityS2CPacket.Rotate(this.entity.getId(), (byte)k, (byte)l, this.entity.isOnGround()));
+               this.send(new EntityS2CPacket.Rotate(this.entity.getId(), (byte)k, (byte)l, this.entity.isOnGround()));
                this.lastYaw = k;
                this.lastPitch = l;
             }
@@ -158,12 +165,12 @@ public class EntityTrackerEntry {
                double d = vec3d2.squaredDistanceTo(this.velocity);
                if (d > 1.0E-7D || d > 0.0D && vec3d2.lengthSquared() == 0.0D) {
                   this.velocity = vec3d2;
-                  this.receiver.accept(new EntityVelocityUpdateS2CPacket(this.entity.getId(), this.velocity));
+                  this.send(new EntityVelocityUpdateS2CPacket(this.entity.getId(), this.velocity));
                }
             }
 
             if (packet2 != null) {
-               this.receiver.accept(packet2);
+               this.send(packet2);
             }
 
             this.syncEntityData();
@@ -181,7 +188,7 @@ public class EntityTrackerEntry {
 
          k = MathHelper.floor(this.entity.getHeadYaw() * 256.0F / 360.0F);
          if (Math.abs(k - this.lastHeadPitch) >= 1) {
-            this.receiver.accept(new EntitySetHeadYawS2CPacket(this.entity, (byte)k));
+            this.send(new EntitySetHeadYawS2CPacket(this.entity, (byte)k));
             this.lastHeadPitch = k;
          }
 
@@ -196,6 +203,69 @@ public class EntityTrackerEntry {
 
    }
 
+   /**
+    * Returns whether {@link #tickDeferred} may run on another thread, which it may
+    * unless the entity needs the world for its updates.
+    */
+   public boolean canTickDeferred() {
+      return !(this.entity instanceof ItemFrameEntity);
+   }
+
+   /**
+    * Ticks this entry like {@link #tick}, but keeps the packets it produces until
+    * {@link #sendPendingPackets} is called. Entries of different entities can be
+    * ticked this way concurrently, as long as nothing else accesses the entities.
+    */
+   public void tickDeferred() {
+      this.deferPackets = true;
+
+      try {
+         this.tick();
+      } finally {
+         this.deferPackets = false;
+      }
+
+   }
+
+   /**
+    * Sends the packets kept by {@link #tickDeferred}, in the order they were produced.
+    */
+   public void sendPendingPackets() {
+      Iterator var1;
+      Packet packet;
+      if (!this.pendingPackets.isEmpty()) {
+         var1 = this.pendingPackets.iterator();
+
+         while(var1.hasNext()) {
+            packet = (Packet)var1.next();
+            this.receiver.accept(packet);
+         }
+
+         this.pendingPackets.clear();
+      }
+
+      if (!this.pendingSelfPackets.isEmpty()) {
+         var1 = this.pendingSelfPackets.iterator();
+
+         while(var1.hasNext()) {
+            packet = (Packet)var1.next();
+            ((ServerPlayerEntity)this.entity).networkHandler.sendPacket(packet);
+         }
+
+         this.pendingSelfPackets.clear();
+      }
+
+   }
+
+   private void send(Packet<?> packet) {
+      if (this.deferPackets) {
+         this.pendingPackets.add(packet);
+      } else {
+         this.receiver.accept(packet);
+      }
+
+   }
+
    public void stopTracking(ServerPlayerEntity player) {
       this.entity.onStoppedTrackingBy(player);
       player.networkHandler.sendPacket(new EntityDestroyS2CPacket(this.entity.getId()));
@@ -322,9 +392,13 @@ public class EntityTrackerEntry {
     * Sends a packet for synchronization with watcher and tracked player (if applicable)
     */
    private void sendSyncPacket(Packet<?> packet) {
-      this.receiver.accept(packet);
+      this.send(packet);
       if (this.entity instanceof ServerPlayerEntity) {
-         ((ServerPlayerEntity)this.entity).networkHandler.sendPacket(packet);
+         if (this.deferPackets) {
+            this.pendingSelfPackets.add(packet);
+         } else {
+            ((ServerPlayerEntity)this.entity).networkHandler.sendPacket(packet);
+         }
       }
 
    }
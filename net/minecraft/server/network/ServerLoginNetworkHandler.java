@@ -2,6 +2,7 @@ package net.minecraft.server.network;
 
 import com.mojang.authlib.GameProfile;
 import com.mojang.authlib.exceptions.AuthenticationUnavailableException;
+import io.netty.buffer.Unpooled;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -11,10 +12,12 @@ import java.util.Arrays;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.network.ClientConnection;
+import net.minecraft.network.PacketByteBuf;
 import net.minecraft.network.encryption.NetworkEncryptionException;
 import net.minecraft.network.encryption.NetworkEncryptionUtils;
 import net.minecraft.network.listener.ServerLoginPacketListener;
@@ -24,11 +27,13 @@ import net.minecraft.network.packet.c2s.login.LoginQueryResponseC2SPacket;
 import net.minecraft.network.packet.s2c.login.LoginCompressionS2CPacket;
 import net.minecraft.network.packet.s2c.login.LoginDisconnectS2CPacket;
 import net.minecraft.network.packet.s2c.login.LoginHelloS2CPacket;
+import net.minecraft.network.packet.s2c.login.LoginQueryRequestS2CPacket;
 import net.minecraft.network.packet.s2c.login.LoginSuccessS2CPacket;
 import net.minecraft.network.packet.s2c.play.DisconnectS2CPacket;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.text.Text;
 import net.minecraft.text.TranslatableText;
+import net.minecraft.util.Identifier;
 import net.minecraft.util.logging.UncaughtExceptionLogger;
 import org.apache.commons.lang3.Validate;
 import org.apache.logging.log4j.LogManager;
@@ -54,6 +59,15 @@ public class ServerLoginNetworkHandler implements ServerLoginPacketListener {
    static final Logger LOGGER = LogManager.getLogger();
    private static final int TIMEOUT_TICKS = 600;
    private static final Random RANDOM = new Random();
+   /**
+    * The channel of the login query offering the fastest compression level to
+    * the other end. An answer with a payload starting with {@code true} accepts
+    * it; vanilla clients answer without a payload and keep the configured level.
+    * It has its own namespace, as it is not a vanilla channel.
+    */
+   public static final Identifier FAST_COMPRESSION_CHANNEL = new Identifier("compression", "fast");
+   private static final int FAST_COMPRESSION_QUERY_ID = 0;
+   private static volatile boolean offerFastCompression;
    private final byte[] nonce = new byte[4];
    final MinecraftServer server;
    public final ClientConnection connection;
@@ -71,6 +85,8 @@ public class ServerLoginNetworkHandler implements ServerLoginPacketListener {
     */
    @Nullable
    private ServerPlayerEntity delayedPlayer;
+   private boolean compressionNegotiated;
+   private boolean fastCompression;
 
    public ServerLoginNetworkHandler(MinecraftServer server, ClientConnection connection) {
       this.state = ServerLoginNetworkHandler.State.HELLO;
@@ -80,6 +96,14 @@ public class ServerLoginNetworkHandler implements ServerLoginPacketListener {
       RANDOM.nextBytes(this.nonce);
    }
 
+   /**
+    * Sets whether connections are offered the fastest compression level during
+    * login.
+    */
+   public static void setOfferFastCompression(boolean offerFastCompression) {
+      ServerLoginNetworkHandler.offerFastCompression = offerFastCompression;
+   }
+
    /**
     * Ticks this login network handler.
     * 
@@ -91,7 +115,13 @@ public class ServerLoginNetworkHandler implements ServerLoginPacketListener {
     */
    public void tick() {
       if (this.state == ServerLoginNetworkHandler.State.READY_TO_ACCEPT) {
-         this.acceptPlayer();
+         if (!this.compressionNegotiated && offerFastCompression && this.server.getNetworkCompressionThreshold() >= 0 && !this.connection.isLocal()) {
+            this.compressionNegotiated = true;
+            this.state = ServerLoginNetworkHandler.State.NEGOTIATING;
+            this.connection.send(new LoginQueryRequestS2CPacket(FAST_COMPRESSION_QUERY_ID, FAST_COMPRESSION_CHANNEL, new PacketByteBuf(Unpooled.buffer())));
+         } else {
+            this.acceptPlayer();
+         }
       } else if (this.state == ServerLoginNetworkHandler.State.DELAY_ACCEPT) {
          ServerPlayerEntity serverPlayerEntity = this.server.getPlayerManager().getPlayer(this.profile.getId());
          if (serverPlayerEntity == null) {
@@ -143,6 +173,10 @@ public class ServerLoginNetworkHandler implements ServerLoginPacketListener {
          if (this.server.getNetworkCompressionThreshold() >= 0 && !this.connection.isLocal()) {
             this.connection.send(new LoginCompressionS2CPacket(this.server.getNetworkCompressionThreshold()), (channelFuture) -> {
                this.connection.setCompressionThreshold(this.server.getNetworkCompressionThreshold());
+               if (this.fastCompression) {
+                  this.connection.setCompressionLevel(Deflater.BEST_SPEED);
+               }
+
             });
          }
 
@@ -256,7 +290,13 @@ public class ServerLoginNetworkHandler implements ServerLoginPacketListener {
    }
 
    public void onQueryResponse(LoginQueryResponseC2SPacket packet) {
-      this.disconnect(new TranslatableText("multiplayer.disconnect.unexpected_query_response"));
+      if (this.state == ServerLoginNetworkHandler.State.NEGOTIATING && packet.getQueryId() == FAST_COMPRESSION_QUERY_ID) {
+         PacketByteBuf packetByteBuf = packet.getResponse();
+         this.fastCompression = packetByteBuf != null && packetByteBuf.isReadable() && packetByteBuf.readBoolean();
+         this.state = ServerLoginNetworkHandler.State.READY_TO_ACCEPT;
+      } else {
+         this.disconnect(new TranslatableText("multiplayer.disconnect.unexpected_query_response"));
+      }
    }
 
    protected GameProfile toOfflineProfile(GameProfile profile) {
@@ -0,0 +1,271 @@
+package net.minecraft.server.world;
+
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import it.unimi.dsi.fastutil.shorts.ShortList;
+import java.util.Arrays;
+import java.util.List;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.function.BooleanBiFunction;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.shape.VoxelShapes;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * Collects block changes and applies them a chunk section at a time.
+ *
+ * <p>Where {@link net.minecraft.world.World#setBlockState} updates heightmaps,
+ * light and clients for every block, a batch writes the changes of a section
+ * into its palette at once, then recomputes the heightmaps of the changed
+ * columns, queues a single light check for the section and marks its changes
+ * for clients together. Neighbor and shape updates run after every block of
+ * the batch is in place.
+ *
+ * <p>Changes to blocks that have or get a block entity are applied through
+ * {@link WorldChunk#setBlockState} as usual.
+ */
+public class BlockEditBatch {
+   private static final Heightmap.Type[] HEIGHTMAP_TYPES = new Heightmap.Type[]{Heightmap.Type.MOTION_BLOCKING, Heightmap.Type.MOTION_BLOCKING_NO_LEAVES, Heightmap.Type.OCEAN_FLOOR, Heightmap.Type.WORLD_SURFACE};
+   private final ServerWorld world;
+   private final int flags;
+   private final Long2ObjectMap<BlockEditBatch.SectionEdits> editsBySection = new Long2ObjectLinkedOpenHashMap();
+
+   /**
+    * @param flags the flags the changes are applied with, as for {@link net.minecraft.world.World#setBlockState(BlockPos, BlockState, int)}
+    */
+   public BlockEditBatch(ServerWorld world, int flags) {
+      this.world = world;
+      this.flags = flags;
+   }
+
+   /**
+    * Records a change, replacing any change recorded earlier for the same position.
+    */
+   public void set(BlockPos pos, BlockState state) {
+      if (!this.world.isOutOfHeightLimit(pos) && !this.world.isDebugWorld()) {
+         long l = ChunkSectionPos.toLong(pos);
+         BlockEditBatch.SectionEdits sectionEdits = (BlockEditBatch.SectionEdits)this.editsBySection.get(l);
+         if (sectionEdits == null) {
+            sectionEdits = new BlockEditBatch.SectionEdits();
+            this.editsBySection.put(l, sectionEdits);
+         }
+
+         sectionEdits.set(ChunkSectionPos.packLocal(pos), state);
+      }
+   }
+
+   public boolean isEmpty() {
+      return this.editsBySection.isEmpty();
+   }
+
+   /**
+    * Applies the recorded changes and clears the batch.
+    *
+    * @return the positions whose block state changed, as by {@link BlockPos#asLong()}
+    */
+   public LongList apply() {
+      LongList longList = new LongArrayList();
+      List<BlockState> list = Lists.newArrayList();
+      List<BlockState> list2 = Lists.newArrayList();
+      LongList longList2 = new LongArrayList();
+      ObjectIterator objectIterator = Long2ObjectMaps.fastIterator(this.editsBySection);
+
+      while(objectIterator.hasNext()) {
+         Long2ObjectMap.Entry<BlockEditBatch.SectionEdits> entry = (Long2ObjectMap.Entry)objectIterator.next();
+         this.applySection(ChunkSectionPos.from(entry.getLongKey()), (BlockEditBatch.SectionEdits)entry.getValue(), longList, list, list2, longList2);
+      }
+
+      this.editsBySection.clear();
+      this.world.updateNavigations(longList2);
+
+      for(int i = 0; i < longList.size(); ++i) {
+         BlockPos blockPos = BlockPos.fromLong(longList.getLong(i));
+         BlockState blockState = (BlockState)list.get(i);
+         BlockState blockState2 = (BlockState)list2.get(i);
+         if (this.world.getBlockState(blockPos) == blockState2) {
+            if ((this.flags & Block.NOTIFY_NEIGHBORS) != 0) {
+               this.world.updateNeighbors(blockPos, blockState.getBlock());
+               if (blockState2.hasComparatorOutput()) {
+                  this.world.updateComparators(blockPos, blockState2.getBlock());
+               }
+            }
+
+            if ((this.flags & Block.FORCE_STATE) == 0) {
+               int j = this.flags & ~(Block.NOTIFY_NEIGHBORS | Block.SKIP_DROPS);
+               blockState.prepare(this.world, blockPos, j, 511);
+               blockState2.updateNeighbors(this.world, blockPos, j, 511);
+               blockState2.prepare(this.world, blockPos, j, 511);
+            }
+
+            this.world.onBlockChanged(blockPos, blockState, blockState2);
+         }
+      }
+
+      return longList;
+   }
+
+   private void applySection(ChunkSectionPos sectionPos, BlockEditBatch.SectionEdits edits, LongList changedPositions, List<BlockState> oldStates, List<BlockState> newStates, LongList collisionChanges) {
+      WorldChunk worldChunk = this.world.getChunk(sectionPos.getSectionX(), sectionPos.getSectionZ());
+      int i = this.world.sectionCoordToIndex(sectionPos.getSectionY());
+      ChunkSection[] chunkSections = worldChunk.getSectionArray();
+      ChunkSection chunkSection = chunkSections[i];
+      if (chunkSection == WorldChunk.EMPTY_SECTION) {
+         if (!edits.hasNonAir()) {
+            return;
+         }
+
+         chunkSection = new ChunkSection(sectionPos.getSectionY());
+         chunkSections[i] = chunkSection;
+      }
+
+      boolean bl = chunkSection.isEmpty();
+      boolean bl2 = (this.flags & Block.MOVED) != 0;
+      short[] ss = new short[edits.size];
+      BlockState[] blockStates = new BlockState[edits.size];
+      ShortList shortList = new ShortArrayList();
+      int j = 0;
+
+      int k;
+      for(k = 0; k < edits.size; ++k) {
+         short s = edits.positions[k];
+         BlockState blockState = edits.states[s];
+         BlockState blockState2 = chunkSection.getBlockState(ChunkSectionPos.unpackLocalX(s), ChunkSectionPos.unpackLocalY(s), ChunkSectionPos.unpackLocalZ(s));
+         if (blockState2 != blockState) {
+            if (!blockState2.hasBlockEntity() && !blockState.hasBlockEntity()) {
+               ss[j] = s;
+               blockStates[j] = blockState;
+               ++j;
+            } else {
+               shortList.add(s);
+            }
+         }
+      }
+
+      BlockState[] blockStates2 = new BlockState[j];
+      chunkSection.setBlocks(ss, blockStates, blockStates2, j);
+      int[] is = new int[256];
+      Arrays.fill(is, Integer.MIN_VALUE);
+
+      for(k = 0; k < j; ++k) {
+         int l = ChunkSectionPos.unpackLocalX(ss[k]) | ChunkSectionPos.unpackLocalZ(ss[k]) << 4;
+         is[l] = Math.max(is[l], sectionPos.getMinY() + ChunkSectionPos.unpackLocalY(ss[k]));
+      }
+
+      for(k = 0; k < 256; ++k) {
+         if (is[k] != Integer.MIN_VALUE) {
+            Heightmap.Type[] var17 = HEIGHTMAP_TYPES;
+            int var18 = var17.length;
+
+            for(int var19 = 0; var19 < var18; ++var19) {
+               Heightmap.Type type = var17[var19];
+               worldChunk.getHeightmap(type).recalculate(k & 15, k >> 4, is[k]);
+            }
+         }
+      }
+
+      if (bl != chunkSection.isEmpty()) {
+         this.world.getChunkManager().getLightingProvider().setSectionStatus(sectionPos, chunkSection.isEmpty());
+      }
+
+      LongList longList = new LongArrayList();
+      ShortList shortList2 = new ShortArrayList();
+
+      for(k = 0; k < j + shortList.size(); ++k) {
+         short s2 = k < j ? ss[k] : shortList.getShort(k - j);
+         BlockPos blockPos = sectionPos.unpackBlockPos(s2);
+         BlockState blockState3;
+         BlockState blockState4;
+         if (k < j) {
+            blockState3 = blockStates2[k];
+            blockState4 = blockStates[k];
+            blockState3.onStateReplaced(this.world, blockPos, blockState4, bl2);
+            if (!chunkSection.getBlockState(blockPos.getX() & 15, blockPos.getY() & 15, blockPos.getZ() & 15).isOf(blockState4.getBlock())) {
+               continue;
+            }
+
+            blockState4.onBlockAdded(this.world, blockPos, blockState3, bl2);
+         } else {
+            blockState4 = edits.states[s2];
+            blockState3 = worldChunk.setBlockState(blockPos, blockState4, bl2);
+            if (blockState3 == null) {
+               continue;
+            }
+         }
+
+         BlockState blockState5 = this.world.getBlockState(blockPos);
+         if ((this.flags & Block.SKIP_LIGHTING_UPDATES) == 0 && blockState5 != blockState3 && (blockState5.getOpacity(this.world, blockPos) != blockState3.getOpacity(this.world, blockPos) || blockState5.getLuminance() != blockState3.getLuminance() || blockState5.hasSidedTransparency() || blockState3.hasSidedTransparency())) {
+            longList.add(blockPos.asLong());
+         }
+
+         if (blockState5 == blockState4) {
+            if ((this.flags & Block.NOTIFY_LISTENERS) != 0 && worldChunk.getLevelType() != null && worldChunk.getLevelType().isAfter(ChunkHolder.LevelType.TICKING)) {
+               shortList2.add(s2);
+               if (VoxelShapes.matchesAnywhere(blockState3.getCollisionShape(this.world, blockPos), blockState4.getCollisionShape(this.world, blockPos), BooleanBiFunction.NOT_SAME)) {
+                  collisionChanges.add(blockPos.asLong());
+               }
+            }
+
+            changedPositions.add(blockPos.asLong());
+            oldStates.add(blockState3);
+            newStates.add(blockState4);
+         }
+      }
+
+      if (!longList.isEmpty()) {
+         this.world.getChunkManager().getLightingProvider().checkBlocks(sectionPos, longList);
+      }
+
+      if (!shortList2.isEmpty()) {
+         this.world.getChunkManager().markForUpdate(sectionPos, shortList2);
+      }
+
+      if (j > 0) {
+         worldChunk.setShouldSave(true);
+      }
+
+   }
+
+   /**
+    * The changes recorded for one chunk section.
+    */
+   static class SectionEdits {
+      /**
+       * The new states by packed local position, or {@code null} for positions that do not change.
+       */
+      final BlockState[] states = new BlockState[4096];
+      short[] positions = new short[64];
+      int size;
+
+      void set(short pos, BlockState state) {
+         if (this.states[pos] == null) {
+            if (this.size == this.positions.length) {
+               this.positions = Arrays.copyOf(this.positions, this.size * 2);
+            }
+
+            this.positions[this.size++] = pos;
+         }
+
+         this.states[pos] = state;
+      }
+
+      boolean hasNonAir() {
+         for(int i = 0; i < this.size; ++i) {
+            if (!this.states[this.positions[i]].isAir()) {
+               return true;
+            }
+         }
+
+         return false;
+      }
+   }
+}
@@ -2,6 +2,8 @@ package net.minecraft.server.world;
 
 import com.mojang.datafixers.util.Either;
 import it.unimi.dsi.fastutil.shorts.ShortArraySet;
+import it.unimi.dsi.fastutil.shorts.ShortCollection;
+import it.unimi.dsi.fastutil.shorts.ShortOpenHashSet;
 import it.unimi.dsi.fastutil.shorts.ShortSet;
 import java.util.BitSet;
 import java.util.List;
@@ -16,8 +18,10 @@ import java.util.stream.Stream;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.network.Packet;
+import net.minecraft.network.SharedPacket;
 import net.minecraft.network.packet.s2c.play.BlockEntityUpdateS2CPacket;
 import net.minecraft.network.packet.s2c.play.BlockUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
 import net.minecraft.network.packet.s2c.play.ChunkDeltaUpdateS2CPacket;
 import net.minecraft.network.packet.s2c.play.LightUpdateS2CPacket;
 import net.minecraft.server.network.ServerPlayerEntity;
@@ -47,6 +51,15 @@ public class ChunkHolder {
    private static final List<ChunkStatus> CHUNK_STATUSES;
    private static final ChunkHolder.LevelType[] LEVEL_TYPES;
    private static final int field_29668 = 64;
+   /**
+    * The number of marked positions above which a chunk may be resent whole
+    * instead of as delta updates.
+    */
+   private static final int CHUNK_RESEND_THRESHOLD = 4096;
+   /**
+    * An upper bound for the size of one entry of a delta update packet.
+    */
+   private static final int DELTA_UPDATE_ENTRY_SIZE = 4;
    private final AtomicReferenceArray<CompletableFuture<Either<Chunk, ChunkHolder.Unloaded>>> futuresByStatus;
    private final HeightLimitView world;
    private volatile CompletableFuture<Either<WorldChunk, ChunkHolder.Unloaded>> accessibleFuture;
@@ -78,6 +91,17 @@ public class ChunkHolder {
    private boolean accessible;
    private boolean field_26744;
    private CompletableFuture<Void> field_26930;
+   /**
+    * The chunk data and light packets sent to players starting to watch the
+    * chunk, as built from {@link #sharedChunkPacketsChunk} at modification
+    * count {@link #sharedChunkPacketsVersion}.
+    */
+   @Nullable
+   private Packet<?>[] sharedChunkPackets;
+   @Nullable
+   private WorldChunk sharedChunkPacketsChunk;
+   private int sharedChunkPacketsVersion;
+   private long sharedChunkPacketsTime;
 
    public ChunkHolder(ChunkPos pos, int level, HeightLimitView world, LightingProvider lightingProvider, ChunkHolder.LevelUpdateListener levelUpdateListener, ChunkHolder.PlayersWatchingChunkProvider playersWatchingChunkProvider) {
       this.futuresByStatus = new AtomicReferenceArray(CHUNK_STATUSES.size());
@@ -175,6 +199,31 @@ public class ChunkHolder {
       }
    }
 
+   /**
+    * Marks several positions of one section for update at once.
+    *
+    * @param sectionY chunk section y coordinate
+    * @param positions packed chunk-local positions, as by {@link ChunkSectionPos#packLocal}
+    */
+   public void markForBlockUpdates(int sectionY, ShortCollection positions) {
+      WorldChunk worldChunk = this.getWorldChunk();
+      if (worldChunk != null && !positions.isEmpty()) {
+         int i = this.world.sectionCoordToIndex(sectionY);
+         ShortSet shortSet = this.blockUpdatesBySection[i];
+         if (shortSet == null) {
+            this.pendingBlockUpdates = true;
+            this.blockUpdatesBySection[i] = (ShortSet)(positions.size() > 64 ? new ShortOpenHashSet(positions) : new ShortArraySet(positions));
+         } else if (shortSet instanceof ShortArraySet && shortSet.size() + positions.size() > 64) {
+            ShortSet shortSet2 = new ShortOpenHashSet(shortSet);
+            shortSet2.addAll(positions);
+            this.blockUpdatesBySection[i] = shortSet2;
+         } else {
+            shortSet.addAll(positions);
+         }
+
+      }
+   }
+
    /**
     * @param y chunk section y coordinate
     */
@@ -196,6 +245,36 @@ public class ChunkHolder {
       }
    }
 
+   /**
+    * Returns the chunk data and light packets for {@code chunk}, which are built
+    * once and shared by every player the chunk is sent to until the chunk changes.
+    *
+    * @param time the current world time, recorded if the packets are built
+    */
+   public Packet<?>[] getSharedChunkPackets(WorldChunk chunk, long time) {
+      int i = chunk.getModificationCount();
+      if (this.sharedChunkPackets == null || this.sharedChunkPacketsChunk != chunk || this.sharedChunkPacketsVersion != i) {
+         this.sharedChunkPackets = new Packet[]{new SharedPacket(new ChunkDataS2CPacket(chunk)), new SharedPacket(new LightUpdateS2CPacket(chunk.getPos(), this.lightingProvider, (BitSet)null, (BitSet)null, true))};
+         this.sharedChunkPacketsChunk = chunk;
+         this.sharedChunkPacketsVersion = i;
+         this.sharedChunkPacketsTime = time;
+      }
+
+      return this.sharedChunkPackets;
+   }
+
+   /**
+    * {@return the world time the shared chunk packets were last built at}
+    */
+   public long getSharedChunkPacketsTime() {
+      return this.sharedChunkPacketsTime;
+   }
+
+   public void clearSharedChunkPackets() {
+      this.sharedChunkPackets = null;
+      this.sharedChunkPacketsChunk = null;
+   }
+
    public void flushUpdates(WorldChunk chunk) {
       if (this.pendingBlockUpdates || !this.skyLightUpdateBits.isEmpty() || !this.blockLightUpdateBits.isEmpty()) {
          World world = chunk.getWorld();
@@ -213,6 +292,14 @@ public class ChunkHolder {
             this.blockLightUpdateBits.clear();
          }
 
+         if (i >= CHUNK_RESEND_THRESHOLD && (long)i * (long)DELTA_UPDATE_ENTRY_SIZE > (long)getPacketSize(chunk)) {
+            this.sendPacketToPlayersWatching(new ChunkDataS2CPacket(chunk), false);
+
+            for(k = 0; k < this.blockUpdatesBySection.length; ++k) {
+               this.blockUpdatesBySection[k] = null;
+            }
+         }
+
          for(k = 0; k < this.blockUpdatesBySection.length; ++k) {
             ShortSet shortSet = this.blockUpdatesBySection[k];
             if (shortSet != null) {
@@ -240,6 +327,24 @@ public class ChunkHolder {
       }
    }
 
+   /**
+    * {@return the size of the block data of the given chunk in a chunk data packet}
+    */
+   static int getPacketSize(WorldChunk chunk) {
+      int i = 0;
+      ChunkSection[] var2 = chunk.getSectionArray();
+      int var3 = var2.length;
+
+      for(int var4 = 0; var4 < var3; ++var4) {
+         ChunkSection chunkSection = var2[var4];
+         if (!ChunkSection.isEmpty(chunkSection)) {
+            i += chunkSection.getPacketSize();
+         }
+      }
+
+      return i;
+   }
+
    private void tryUpdateBlockEntityAt(World world, BlockPos pos, BlockState state) {
       if (state.hasBlockEntity()) {
          this.sendBlockEntityUpdatePacket(world, pos);
@@ -0,0 +1,364 @@
+package net.minecraft.server.world;
+
+import com.google.common.collect.Queues;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongRBTreeSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSortedSet;
+import java.util.Locale;
+import java.util.Queue;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.PersistentState;
+import net.minecraft.world.chunk.ChunkStatus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Generates all chunks within a radius of a center chunk ahead of time.
+ *
+ * <p>Chunks are visited in a square spiral around the center so that neighboring
+ * chunks, whose lower generation stages are shared, are generated close together.
+ * At most a window of chunks is in flight at once; each is held loaded by a
+ * {@link ChunkTicketType#PREGENERATION} ticket until it reaches {@link ChunkStatus#FULL},
+ * and chunks the region status index already knows to be fully generated are skipped
+ * without loading them. The window shrinks while the server is overloaded.
+ *
+ * <p>Progress is kept in the world's persistent state, so a pre-generation that is
+ * interrupted by a restart resumes where it left off.
+ */
+public class ChunkPregenerator {
+   private static final Logger LOGGER = LogManager.getLogger();
+   private static final String STATE_KEY = "pregeneration";
+   private static final long LOG_INTERVAL = 10000L;
+   private static final float OVERLOADED_TICK_TIME = 45.0F;
+   private static int concurrency = 16;
+   private final ServerWorld world;
+   private final ServerChunkManager chunkManager;
+   @Nullable
+   private ChunkPregenerator.Task task;
+   private boolean loaded;
+
+   public ChunkPregenerator(ServerWorld world) {
+      this.world = world;
+      this.chunkManager = world.getChunkManager();
+   }
+
+   /**
+    * Sets the maximum number of chunks that pre-generations started from now on
+    * keep in flight at once.
+    */
+   public static void setConcurrency(int concurrency) {
+      ChunkPregenerator.concurrency = MathHelper.clamp((int)concurrency, (int)1, (int)256);
+   }
+
+   /**
+    * Starts pre-generating the chunks within {@code radius} chunks of the center.
+    *
+    * @return {@code false} if a pre-generation is already running in this world
+    */
+   public boolean start(ChunkPos center, int radius, boolean circular) {
+      this.loadState();
+      if (this.task != null) {
+         return false;
+      } else {
+         ChunkPregenerator.State state = new ChunkPregenerator.State(center.x, center.z, radius, circular, concurrency);
+         this.world.getPersistentStateManager().set(STATE_KEY, state);
+         state.markDirty();
+         this.task = new ChunkPregenerator.Task(state);
+         LOGGER.info((String)"Pre-generating {} chunks around {} in {}", (Object)this.task.getChunkCount(), center, this.world.getRegistryKey().getValue());
+         return true;
+      }
+   }
+
+   /**
+    * Stops the running pre-generation and releases the chunks it holds.
+    *
+    * @return {@code false} if no pre-generation is running in this world
+    */
+   public boolean stop() {
+      this.loadState();
+      if (this.task == null) {
+         return false;
+      } else {
+         this.task.releaseTickets();
+         this.task.state.setFinished();
+         this.task = null;
+         return true;
+      }
+   }
+
+   @Nullable
+   public ChunkPregenerator.Task getTask() {
+      this.loadState();
+      return this.task;
+   }
+
+   private void loadState() {
+      if (!this.loaded) {
+         this.loaded = true;
+         ChunkPregenerator.State state = (ChunkPregenerator.State)this.world.getPersistentStateManager().get(ChunkPregenerator.State::fromNbt, STATE_KEY);
+         if (state != null && !state.finished) {
+            this.task = new ChunkPregenerator.Task(state);
+            LOGGER.info((String)"Resuming pre-generation of {} at {}/{} chunks", this.world.getRegistryKey().getValue(), state.index, this.task.getChunkCount());
+         }
+      }
+
+   }
+
+   public void tick() {
+      this.loadState();
+      if (this.task != null && this.task.tick()) {
+         LOGGER.info((String)"Finished pre-generating {} chunks in {}: {} generated, {} already present", this.task.getChunkCount(), this.world.getRegistryKey().getValue(), this.task.state.generated, this.task.state.skipped);
+         this.task.state.setFinished();
+         this.task = null;
+      }
+
+   }
+
+   /**
+    * {@return the position of the chunk at the given index of a square spiral
+    * starting at the origin}
+    */
+   static ChunkPos getSpiralPos(long index) {
+      if (index == 0L) {
+         return new ChunkPos(0, 0);
+      } else {
+         long l = (long)Math.sqrt((double)index);
+
+         while(l * l > index) {
+            --l;
+         }
+
+         while((l + 1L) * (l + 1L) <= index) {
+            ++l;
+         }
+
+         int i = (int)((l + 1L) / 2L);
+         long m = index - (long)(2 * i - 1) * (long)(2 * i - 1);
+         int j = 2 * i;
+         int k = (int)(m / (long)j);
+         int n = (int)(m % (long)j);
+         switch(k) {
+         case 0:
+            return new ChunkPos(i, -i + 1 + n);
+         case 1:
+            return new ChunkPos(i - 1 - n, i);
+         case 2:
+            return new ChunkPos(-i, i - 1 - n);
+         default:
+            return new ChunkPos(-i + 1 + n, -i);
+         }
+      }
+   }
+
+   public class Task {
+      final ChunkPregenerator.State state;
+      private final long chunkCount;
+      private long nextIndex;
+      /**
+       * The indices of the chunks currently in flight, used to find the index below
+       * which every chunk is done.
+       */
+      private final LongSortedSet inFlight = new LongRBTreeSet();
+      private final LongSet ticketed = new LongOpenHashSet();
+      private final LongList awaitingHolders = new LongArrayList();
+      private final Queue<Long> missing = Queues.newConcurrentLinkedQueue();
+      private final Queue<Long> present = Queues.newConcurrentLinkedQueue();
+      private final Queue<Long> generated = Queues.newConcurrentLinkedQueue();
+      private long lastLogTime = Util.getMeasuringTimeMs();
+      private long lastLogCount;
+      private double chunksPerSecond;
+
+      Task(ChunkPregenerator.State state) {
+         this.state = state;
+         long l = 2L * (long)state.radius + 1L;
+         this.chunkCount = l * l;
+         this.nextIndex = state.index;
+      }
+
+      /**
+       * {@return the number of chunk positions covered by the pre-generation,
+       * including those outside a circular shape that are never generated}
+       */
+      public long getChunkCount() {
+         return this.chunkCount;
+      }
+
+      public long getIndex() {
+         return this.state.index;
+      }
+
+      public double getChunksPerSecond() {
+         return this.chunksPerSecond;
+      }
+
+      public int getInFlightCount() {
+         return this.inFlight.size();
+      }
+
+      private ChunkPos getPos(long index) {
+         ChunkPos chunkPos = ChunkPregenerator.getSpiralPos(index);
+         return new ChunkPos(this.state.centerX + chunkPos.x, this.state.centerZ + chunkPos.z);
+      }
+
+      private boolean isInShape(long index) {
+         if (!this.state.circular) {
+            return true;
+         } else {
+            ChunkPos chunkPos = ChunkPregenerator.getSpiralPos(index);
+            return (long)chunkPos.x * (long)chunkPos.x + (long)chunkPos.z * (long)chunkPos.z <= (long)this.state.radius * (long)this.state.radius;
+         }
+      }
+
+      /**
+       * {@return whether every chunk has been generated}
+       */
+      boolean tick() {
+         long l;
+         while(!this.present.isEmpty()) {
+            l = (Long)this.present.poll();
+            this.inFlight.remove(l);
+            ++this.state.skipped;
+         }
+
+         while(!this.generated.isEmpty()) {
+            l = (Long)this.generated.poll();
+            ChunkPos chunkPos = this.getPos(l);
+            ChunkPregenerator.this.chunkManager.removeTicket(ChunkTicketType.PREGENERATION, chunkPos, 0, chunkPos);
+            this.ticketed.remove(l);
+            this.inFlight.remove(l);
+            ++this.state.generated;
+         }
+
+         this.attachHolders();
+
+         while(!this.missing.isEmpty()) {
+            l = (Long)this.missing.poll();
+            ChunkPos chunkPos2 = this.getPos(l);
+            ChunkPregenerator.this.chunkManager.addTicket(ChunkTicketType.PREGENERATION, chunkPos2, 0, chunkPos2);
+            this.ticketed.add(l);
+            this.awaitingHolders.add(l);
+         }
+
+         int i = ChunkPregenerator.this.world.getServer().getTickTime() > OVERLOADED_TICK_TIME ? Math.max(1, this.state.concurrency / 4) : this.state.concurrency;
+
+         while(this.inFlight.size() < i && this.nextIndex < this.chunkCount) {
+            long n = this.nextIndex++;
+            if (this.isInShape(n)) {
+               this.inFlight.add(n);
+               ChunkPregenerator.this.chunkManager.threadedAnvilChunkStorage.getChunkStatus(this.getPos(n)).whenComplete((entry, throwable) -> {
+                  if (entry != null && entry.getStatus() == ChunkStatus.FULL) {
+                     this.present.add(n);
+                  } else {
+                     this.missing.add(n);
+                  }
+
+               });
+            }
+         }
+
+         long m = this.inFlight.isEmpty() ? this.nextIndex : this.inFlight.firstLong();
+         if (m != this.state.index) {
+            this.state.index = m;
+            this.state.markDirty();
+         }
+
+         this.updateRate();
+         return this.inFlight.isEmpty() && this.nextIndex >= this.chunkCount;
+      }
+
+      private void attachHolders() {
+         for(int i = 0; i < this.awaitingHolders.size(); ++i) {
+            long l = this.awaitingHolders.getLong(i);
+            ChunkHolder chunkHolder = ChunkPregenerator.this.chunkManager.threadedAnvilChunkStorage.getCurrentChunkHolder(this.getPos(l).toLong());
+            if (chunkHolder != null) {
+               chunkHolder.getChunkAt(ChunkStatus.FULL, ChunkPregenerator.this.chunkManager.threadedAnvilChunkStorage).whenComplete((either, throwable) -> {
+                  this.generated.add(l);
+               });
+               this.awaitingHolders.removeLong(i--);
+            }
+         }
+
+      }
+
+      private void updateRate() {
+         long l = Util.getMeasuringTimeMs();
+         if (l - this.lastLogTime >= LOG_INTERVAL) {
+            long m = this.state.generated + this.state.skipped;
+            this.chunksPerSecond = (double)(m - this.lastLogCount) * 1000.0D / (double)(l - this.lastLogTime);
+            this.lastLogTime = l;
+            this.lastLogCount = m;
+            LOGGER.info((String)"Pre-generating {}: {}% ({} generated, {} already present), {} chunks/s", ChunkPregenerator.this.world.getRegistryKey().getValue(), String.format(Locale.ROOT, "%.1f", (double)this.state.index * 100.0D / (double)this.chunkCount), this.state.generated, this.state.skipped, String.format(Locale.ROOT, "%.1f", this.chunksPerSecond));
+         }
+
+      }
+
+      void releaseTickets() {
+         LongIterator longIterator = this.ticketed.iterator();
+
+         while(longIterator.hasNext()) {
+            ChunkPos chunkPos = this.getPos(longIterator.nextLong());
+            ChunkPregenerator.this.chunkManager.removeTicket(ChunkTicketType.PREGENERATION, chunkPos, 0, chunkPos);
+         }
+
+         this.ticketed.clear();
+      }
+   }
+
+   static class State extends PersistentState {
+      final int centerX;
+      final int centerZ;
+      final int radius;
+      final boolean circular;
+      final int concurrency;
+      /**
+       * The spiral index below which every chunk has been generated.
+       */
+      long index;
+      long generated;
+      long skipped;
+      boolean finished;
+
+      State(int centerX, int centerZ, int radius, boolean circular, int concurrency) {
+         this.centerX = centerX;
+         this.centerZ = centerZ;
+         this.radius = radius;
+         this.circular = circular;
+         this.concurrency = concurrency;
+      }
+
+      static ChunkPregenerator.State fromNbt(NbtCompound nbt) {
+         ChunkPregenerator.State state = new ChunkPregenerator.State(nbt.getInt("CenterX"), nbt.getInt("CenterZ"), nbt.getInt("Radius"), nbt.getBoolean("Circular"), Math.max(1, nbt.getInt("Concurrency")));
+         state.index = nbt.getLong("Index");
+         state.generated = nbt.getLong("Generated");
+         state.skipped = nbt.getLong("Skipped");
+         state.finished = nbt.getBoolean("Finished");
+         return state;
+      }
+
+      public NbtCompound writeNbt(NbtCompound nbt) {
+         nbt.putInt("CenterX", this.centerX);
+         nbt.putInt("CenterZ", this.centerZ);
+         nbt.putInt("Radius", this.radius);
+         nbt.putBoolean("Circular", this.circular);
+         nbt.putInt("Concurrency", this.concurrency);
+         nbt.putLong("Index", this.index);
+         nbt.putLong("Generated", this.generated);
+         nbt.putLong("Skipped", this.skipped);
+         nbt.putBoolean("Finished", this.finished);
+         return nbt;
+      }
+
+      void setFinished() {
+         this.finished = true;
+         this.markDirty();
+      }
+   }
+}
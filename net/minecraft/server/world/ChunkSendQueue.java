@@ -0,0 +1,102 @@
+package net.minecraft.server.world;
+
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * The chunks a player started watching that were not sent to it yet.
+ */
+public class ChunkSendQueue {
+   /**
+    * The cosine of the horizontal angle from the look direction of a player
+    * within which chunks are considered in view.
+    */
+   private static final double VIEW_COSINE = 0.5D;
+   /**
+    * The factor applied to the squared distance of chunks in view, so that they
+    * are sent before chunks at the same distance behind the player.
+    */
+   private static final double IN_VIEW_WEIGHT = 0.5D;
+   private final LongSet chunks = new LongOpenHashSet();
+
+   public void add(long pos) {
+      this.chunks.add(pos);
+   }
+
+   public boolean remove(long pos) {
+      return this.chunks.remove(pos);
+   }
+
+   public boolean contains(long pos) {
+      return this.chunks.contains(pos);
+   }
+
+   /**
+    * Removes the queued chunks whose Chebyshev distance to the chunk at {@code x},
+    * {@code z} exceeds {@code distance}.
+    */
+   public void removeBeyond(int x, int z, int distance) {
+      LongIterator longIterator = this.chunks.iterator();
+
+      while(longIterator.hasNext()) {
+         long l = longIterator.nextLong();
+         if (Math.max(Math.abs(ChunkPos.getPackedX(l) - x), Math.abs(ChunkPos.getPackedZ(l) - z)) > distance) {
+            longIterator.remove();
+         }
+      }
+
+   }
+
+   public boolean isEmpty() {
+      return this.chunks.isEmpty();
+   }
+
+   public int size() {
+      return this.chunks.size();
+   }
+
+   /**
+    * Returns the queued chunks in the order to send them. Chunks are ordered by
+    * their squared distance to the chunk the player is in, with the distance of
+    * chunks in front of the player weighed down.
+    */
+   public long[] getOrderedChunks(ServerPlayerEntity player) {
+      long[] ls = this.chunks.toLongArray();
+      double[] ds = new double[ls.length];
+      ChunkSectionPos chunkSectionPos = player.getWatchedSection();
+      int i = chunkSectionPos.getSectionX();
+      int j = chunkSectionPos.getSectionZ();
+      float f = player.getYaw() * 0.017453292F;
+      double d = (double)(-MathHelper.sin(f));
+      double e = (double)MathHelper.cos(f);
+
+      for(int k = 0; k < ls.length; ++k) {
+         int l = ChunkPos.getPackedX(ls[k]) - i;
+         int m = ChunkPos.getPackedZ(ls[k]) - j;
+         double g = (double)(l * l + m * m);
+         if (g > 0.0D && (double)l * d + (double)m * e >= VIEW_COSINE * Math.sqrt(g)) {
+            g *= IN_VIEW_WEIGHT;
+         }
+
+         ds[k] = g;
+      }
+
+      Arrays.quickSort(0, ls.length, (a, b) -> {
+         return Double.compare(ds[a], ds[b]);
+      }, (a, b) -> {
+         long l = ls[a];
+         ls[a] = ls[b];
+         ls[b] = l;
+         double g = ds[a];
+         ds[a] = ds[b];
+         ds[b] = g;
+      });
+      return ls;
+   }
+}
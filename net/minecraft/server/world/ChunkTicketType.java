@@ -25,6 +25,10 @@ public class ChunkTicketType<T> {
     */
    public static final ChunkTicketType<ChunkPos> FORCED = create("forced", Comparator.comparingLong(ChunkPos::toLong));
    public static final ChunkTicketType<ChunkPos> LIGHT = create("light", Comparator.comparingLong(ChunkPos::toLong));
+   /**
+    * Used by the {@link ChunkPregenerator} to hold chunks until they are fully generated.
+    */
+   public static final ChunkTicketType<ChunkPos> PREGENERATION = create("pregeneration", Comparator.comparingLong(ChunkPos::toLong));
    /**
     * Used by a nether portal to load chunks in the other dimension.
     */
@@ -0,0 +1,89 @@
+package net.minecraft.server.world;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.util.List;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+
+/**
+ * Indexes players by the chunk they are in, so that the players near a position
+ * can be found without going through every player of the world.
+ */
+public class PlayerChunkGrid {
+   private final Long2ObjectMap<List<ServerPlayerEntity>> playersByChunk = new Long2ObjectOpenHashMap();
+   private final Object2LongMap<ServerPlayerEntity> chunksByPlayer = new Object2LongOpenHashMap();
+
+   public PlayerChunkGrid() {
+      this.chunksByPlayer.defaultReturnValue(Long.MAX_VALUE);
+   }
+
+   /**
+    * Adds the player, or moves it to the chunk it is in now.
+    */
+   public void update(ServerPlayerEntity player) {
+      long l = ChunkPos.toLong(ChunkSectionPos.getSectionCoord(player.getBlockX()), ChunkSectionPos.getSectionCoord(player.getBlockZ()));
+      long m = this.chunksByPlayer.put(player, l);
+      if (m != l) {
+         if (m != Long.MAX_VALUE) {
+            this.removeFromChunk(m, player);
+         }
+
+         ((List)this.playersByChunk.computeIfAbsent(l, (pos) -> {
+            return new ObjectArrayList(4);
+         })).add(player);
+      }
+
+   }
+
+   public void remove(ServerPlayerEntity player) {
+      long l = this.chunksByPlayer.removeLong(player);
+      if (l != Long.MAX_VALUE) {
+         this.removeFromChunk(l, player);
+      }
+
+   }
+
+   private void removeFromChunk(long pos, ServerPlayerEntity player) {
+      List<ServerPlayerEntity> list = (List)this.playersByChunk.get(pos);
+      if (list != null && list.remove(player) && list.isEmpty()) {
+         this.playersByChunk.remove(pos);
+      }
+
+   }
+
+   /**
+    * Adds the players in the chunks at most {@code radius} chunks away from the
+    * given chunk on each axis to {@code players}.
+    */
+   public void collectPlayers(int chunkX, int chunkZ, int radius, List<ServerPlayerEntity> players) {
+      long l = (long)(radius * 2 + 1) * (long)(radius * 2 + 1);
+      if (l > (long)this.playersByChunk.size()) {
+         ObjectIterator objectIterator = Long2ObjectMaps.fastIterator(this.playersByChunk);
+
+         while(objectIterator.hasNext()) {
+            Long2ObjectMap.Entry<List<ServerPlayerEntity>> entry = (Long2ObjectMap.Entry)objectIterator.next();
+            long m = entry.getLongKey();
+            if (Math.abs(ChunkPos.getPackedX(m) - chunkX) <= radius && Math.abs(ChunkPos.getPackedZ(m) - chunkZ) <= radius) {
+               players.addAll((List)entry.getValue());
+            }
+         }
+      } else {
+         for(int i = chunkX - radius; i <= chunkX + radius; ++i) {
+            for(int j = chunkZ - radius; j <= chunkZ + radius; ++j) {
+               List<ServerPlayerEntity> list = (List)this.playersByChunk.get(ChunkPos.toLong(i, j));
+               if (list != null) {
+                  players.addAll(list);
+               }
+            }
+         }
+      }
+
+   }
+}
@@ -4,6 +4,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.mojang.datafixers.DataFixer;
 import com.mojang.datafixers.util.Either;
+import it.unimi.dsi.fastutil.shorts.ShortCollection;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
@@ -303,6 +304,33 @@ public class ServerChunkManager extends ChunkManager {
       this.threadedAnvilChunkStorage.save(flush);
    }
 
+   public void startIncrementalSave() {
+      this.tick();
+      this.threadedAnvilChunkStorage.startIncrementalSave();
+   }
+
+   public boolean tickIncrementalSave(long deadline) {
+      return this.threadedAnvilChunkStorage.tickIncrementalSave(deadline);
+   }
+
+   /**
+    * {@return the number of chunks queued by the current incremental save pass}
+    */
+   public int getIncrementalSaveQueueSize() {
+      return this.threadedAnvilChunkStorage.getIncrementalSaveQueueSize();
+   }
+
+   /**
+    * {@return the number of queued chunks the current incremental save pass has visited}
+    */
+   public int getIncrementalSaveProgress() {
+      return this.threadedAnvilChunkStorage.getIncrementalSaveIndex();
+   }
+
+   public int getIncrementalSavedCount() {
+      return this.threadedAnvilChunkStorage.getIncrementalSavedCount();
+   }
+
    public void close() throws IOException {
       this.save(true);
       this.lightProvider.close();
@@ -404,6 +432,17 @@ public class ServerChunkManager extends ChunkManager {
 
    }
 
+   /**
+    * Marks several positions of one section for update, as {@link #markForUpdate(BlockPos)} does for one.
+    */
+   public void markForUpdate(ChunkSectionPos pos, ShortCollection positions) {
+      ChunkHolder chunkHolder = this.getChunkHolder(ChunkPos.toLong(pos.getSectionX(), pos.getSectionZ()));
+      if (chunkHolder != null) {
+         chunkHolder.markForBlockUpdates(pos.getSectionY(), positions);
+      }
+
+   }
+
    public void onLightUpdate(LightType type, ChunkSectionPos pos) {
       this.mainThreadExecutor.execute(() -> {
          ChunkHolder chunkHolder = this.getChunkHolder(pos.toChunkPos().toLong());
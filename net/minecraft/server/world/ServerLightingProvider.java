@@ -1,19 +1,29 @@
 package net.minecraft.server.world;
 
+import com.google.common.collect.ImmutableList;
 import com.mojang.datafixers.util.Pair;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongListIterator;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectList;
 import it.unimi.dsi.fastutil.objects.ObjectListIterator;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntSupplier;
+import net.minecraft.client.util.profiler.SamplingChannel;
+import net.minecraft.client.util.profiler.SamplingRecorder;
 import net.minecraft.util.Util;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.profiler.MetricSamplerSupplier;
+import net.minecraft.util.profiler.MetricSuppliers;
 import net.minecraft.util.thread.MessageListener;
 import net.minecraft.util.thread.TaskExecutor;
 import net.minecraft.world.LightType;
+import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.ChunkNibbleArray;
 import net.minecraft.world.chunk.ChunkProvider;
@@ -23,20 +33,31 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
 
-public class ServerLightingProvider extends LightingProvider implements AutoCloseable {
+public class ServerLightingProvider extends LightingProvider implements MetricSamplerSupplier, AutoCloseable {
    private static final Logger LOGGER = LogManager.getLogger();
+   private static volatile boolean parallelUpdates;
    private final TaskExecutor<Runnable> processor;
    private final ObjectList<Pair<ServerLightingProvider.Stage, Runnable>> pendingTasks = new ObjectArrayList();
    private final ThreadedAnvilChunkStorage chunkStorage;
    private final MessageListener<ChunkTaskPrioritySystem.Task<Runnable>> executor;
    private volatile int taskBatchSize = 5;
    private final AtomicBoolean ticking = new AtomicBoolean();
+   private final String name;
 
    public ServerLightingProvider(ChunkProvider chunkProvider, ThreadedAnvilChunkStorage chunkStorage, boolean hasBlockLight, TaskExecutor<Runnable> processor, MessageListener<ChunkTaskPrioritySystem.Task<Runnable>> executor) {
       super(chunkProvider, true, hasBlockLight);
       this.chunkStorage = chunkStorage;
       this.executor = executor;
       this.processor = processor;
+      this.name = "light-" + ((World)chunkProvider.getWorld()).getRegistryKey().getValue();
+      MetricSuppliers.INSTANCE.add(this);
+   }
+
+   /**
+    * Sets whether block light and sky light are updated on separate workers.
+    */
+   public static void setParallelUpdates(boolean parallelUpdates) {
+      ServerLightingProvider.parallelUpdates = parallelUpdates;
    }
 
    public void close() {
@@ -81,6 +102,27 @@ public class ServerLightingProvider extends LightingProvider implements AutoClos
       }));
    }
 
+   /**
+    * Checks several blocks of one section with a single queued task, as
+    * {@link #checkBlock} does for one.
+    *
+    * @param positions the positions as by {@link BlockPos#asLong()}
+    */
+   public void checkBlocks(ChunkSectionPos pos, LongList positions) {
+      LongList longList = new LongArrayList(positions);
+      this.enqueue(pos.getSectionX(), pos.getSectionZ(), ServerLightingProvider.Stage.POST_UPDATE, Util.debugRunnable(() -> {
+         BlockPos.Mutable mutable = new BlockPos.Mutable();
+         LongListIterator longListIterator = longList.iterator();
+
+         while(longListIterator.hasNext()) {
+            super.checkBlock(mutable.set(longListIterator.nextLong()));
+         }
+
+      }, () -> {
+         return "checkBlocks " + pos + " " + longList.size();
+      }));
+   }
+
    public void setSectionStatus(ChunkSectionPos pos, boolean notReady) {
       this.enqueue(pos.getSectionX(), pos.getSectionZ(), () -> {
          return 0;
@@ -191,7 +233,11 @@ public class ServerLightingProvider extends LightingProvider implements AutoClos
       }
 
       objectListIterator.back(j);
-      super.doLightUpdates(Integer.MAX_VALUE, true, true);
+      if (parallelUpdates) {
+         super.doLightUpdates(Util.getMainWorkerExecutor());
+      } else {
+         super.doLightUpdates(Integer.MAX_VALUE, true, true);
+      }
 
       for(j = 0; objectListIterator.hasNext() && j < i; ++j) {
          pair2 = (Pair)objectListIterator.next();
@@ -208,6 +254,18 @@ public class ServerLightingProvider extends LightingProvider implements AutoClos
       this.taskBatchSize = taskBatchSize;
    }
 
+   public int getPendingTaskCount() {
+      return this.pendingTasks.size();
+   }
+
+   public List<SamplingRecorder> getSamplers() {
+      return ImmutableList.of(SamplingRecorder.create(this.name + "-pending-tasks", SamplingChannel.LIGHTING, this::getPendingTaskCount), SamplingRecorder.create(this.name + "-block-pending-updates", SamplingChannel.LIGHTING, () -> {
+         return this.getPendingUpdateCount(LightType.BLOCK);
+      }), SamplingRecorder.create(this.name + "-sky-pending-updates", SamplingChannel.LIGHTING, () -> {
+         return this.getPendingUpdateCount(LightType.SKY);
+      }));
+   }
+
    static enum Stage {
       PRE_UPDATE,
       POST_UPDATE;
@@ -3,6 +3,10 @@ package net.minecraft.server.world;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -22,17 +26,42 @@ import net.minecraft.util.crash.CrashReportSection;
 import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.world.ScheduledTick;
 import net.minecraft.world.TickPriority;
 import net.minecraft.world.TickScheduler;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * Schedules block and fluid ticks.
+ *
+ * <p>Pending ticks are kept in buckets by the time they are due, so scheduling
+ * a tick does not have to find its place among all pending ones; only the ticks
+ * that are due are ordered, when their bucket is collected. Ticks are also
+ * indexed by chunk, so that the ticks of a chunk can be found without going
+ * through all of them when it is saved or unloaded.
+ */
 public class ServerTickScheduler<T> implements TickScheduler<T> {
    public static final int field_30975 = 65536;
+   private static volatile int maxTicksPerTick = 65536;
    protected final Predicate<T> invalidObjPredicate;
    private final Function<T, Identifier> idToName;
    private final Set<ScheduledTick<T>> scheduledTickActions = Sets.newHashSet();
-   private final Set<ScheduledTick<T>> scheduledTickActionsInOrder = Sets.newTreeSet(ScheduledTick.getComparator());
+   /**
+    * The pending ticks that are not due yet, by the time they are due.
+    */
+   private final Long2ObjectMap<Set<ScheduledTick<T>>> ticksByTime = new Long2ObjectOpenHashMap();
+   private int waitingTickCount;
+   /**
+    * The pending ticks that are due but have not run yet, in the order they run.
+    */
+   private final Set<ScheduledTick<T>> dueTicks = Sets.newTreeSet(ScheduledTick.getComparator());
+   private final Long2ObjectMap<Set<ScheduledTick<T>>> ticksByChunk = new Long2ObjectOpenHashMap();
+   /**
+    * The time up to which the buckets of {@link #ticksByTime} have been moved to
+    * {@link #dueTicks}, or {@link Long#MIN_VALUE} before the first tick.
+    */
+   private long collectedTime = Long.MIN_VALUE;
    private final ServerWorld world;
    private final Queue<ScheduledTick<T>> currentTickActions = Queues.newArrayDeque();
    private final List<ScheduledTick<T>> consumedTickActions = Lists.newArrayList();
@@ -45,28 +74,33 @@ public class ServerTickScheduler<T> implements TickScheduler<T> {
       this.tickConsumer = tickConsumer;
    }
 
+   /**
+    * Sets the maximum number of scheduled ticks each scheduler runs per game tick.
+    */
+   public static void setMaxTicksPerTick(int max) {
+      maxTicksPerTick = Math.max(max, 1);
+   }
+
    public void tick() {
-      int i = this.scheduledTickActionsInOrder.size();
-      if (i != this.scheduledTickActions.size()) {
+      int i = this.scheduledTickActions.size();
+      if (i != this.dueTicks.size() + this.waitingTickCount) {
          throw new IllegalStateException("TickNextTick list out of synch");
       } else {
-         if (i > 65536) {
-            i = 65536;
+         if (i > maxTicksPerTick) {
+            i = maxTicksPerTick;
          }
 
-         Iterator<ScheduledTick<T>> iterator = this.scheduledTickActionsInOrder.iterator();
          this.world.getProfiler().push("cleaning");
+         this.collectDueTicks(this.world.getTime());
+         Iterator<ScheduledTick<T>> iterator = this.dueTicks.iterator();
 
          ScheduledTick scheduledTick2;
          while(i > 0 && iterator.hasNext()) {
             scheduledTick2 = (ScheduledTick)iterator.next();
-            if (scheduledTick2.time > this.world.getTime()) {
-               break;
-            }
-
             if (this.world.method_37117(scheduledTick2.pos)) {
                iterator.remove();
                this.scheduledTickActions.remove(scheduledTick2);
+               this.removeFromChunk(scheduledTick2);
                this.currentTickActions.add(scheduledTick2);
                --i;
             }
@@ -96,6 +130,49 @@ public class ServerTickScheduler<T> implements TickScheduler<T> {
       }
    }
 
+   /**
+    * Moves the buckets of ticks that are due at or before the given time to
+    * {@link #dueTicks}.
+    */
+   private void collectDueTicks(long time) {
+      if (this.collectedTime != Long.MIN_VALUE && time - this.collectedTime <= (long)this.ticksByTime.size()) {
+         while(this.collectedTime < time) {
+            ++this.collectedTime;
+            Set<ScheduledTick<T>> set = (Set)this.ticksByTime.remove(this.collectedTime);
+            if (set != null) {
+               this.dueTicks.addAll(set);
+               this.waitingTickCount -= set.size();
+            }
+         }
+      } else {
+         ObjectIterator objectIterator = Long2ObjectMaps.fastIterator(this.ticksByTime);
+
+         while(objectIterator.hasNext()) {
+            Long2ObjectMap.Entry<Set<ScheduledTick<T>>> entry = (Long2ObjectMap.Entry)objectIterator.next();
+            if (entry.getLongKey() <= time) {
+               this.dueTicks.addAll((Collection)entry.getValue());
+               this.waitingTickCount -= ((Set)entry.getValue()).size();
+               objectIterator.remove();
+            }
+         }
+      }
+
+      this.collectedTime = time;
+   }
+
+   private static long getChunkPos(ScheduledTick<?> tick) {
+      return ChunkPos.toLong(ChunkSectionPos.getSectionCoord(tick.pos.getX()), ChunkSectionPos.getSectionCoord(tick.pos.getZ()));
+   }
+
+   private void removeFromChunk(ScheduledTick<T> tick) {
+      long l = getChunkPos(tick);
+      Set<ScheduledTick<T>> set = (Set)this.ticksByChunk.get(l);
+      if (set != null && set.remove(tick) && set.isEmpty()) {
+         this.ticksByChunk.remove(l);
+      }
+
+   }
+
    public boolean isTicking(BlockPos pos, T object) {
       return this.currentTickActions.contains(new ScheduledTick(pos, object));
    }
@@ -109,10 +186,7 @@ public class ServerTickScheduler<T> implements TickScheduler<T> {
    }
 
    public List<ScheduledTick<T>> getScheduledTicks(BlockBox bounds, boolean updateState, boolean getStaleTicks) {
-      List<ScheduledTick<T>> list = this.transferTicksInBounds((List)null, this.scheduledTickActionsInOrder, bounds, updateState);
-      if (updateState && list != null) {
-         this.scheduledTickActions.removeAll(list);
-      }
+      List<ScheduledTick<T>> list = this.getPendingTicks(bounds, updateState);
 
       list = this.transferTicksInBounds(list, this.currentTickActions, bounds, updateState);
       if (!getStaleTicks) {
@@ -122,6 +196,55 @@ public class ServerTickScheduler<T> implements TickScheduler<T> {
       return list == null ? Collections.emptyList() : list;
    }
 
+   /**
+    * {@return the pending ticks within the given bounds in the order they run,
+    * or {@code null} if there are none}
+    */
+   @Nullable
+   private List<ScheduledTick<T>> getPendingTicks(BlockBox bounds, boolean remove) {
+      int i = ChunkSectionPos.getSectionCoord(bounds.getMinX());
+      int j = ChunkSectionPos.getSectionCoord(bounds.getMaxX() - 1);
+      int k = ChunkSectionPos.getSectionCoord(bounds.getMinZ());
+      int l = ChunkSectionPos.getSectionCoord(bounds.getMaxZ() - 1);
+      List<ScheduledTick<T>> list = null;
+      if (j >= i && l >= k) {
+         for(int m = i; m <= j; ++m) {
+            for(int n = k; n <= l; ++n) {
+               Set<ScheduledTick<T>> set = (Set)this.ticksByChunk.get(ChunkPos.toLong(m, n));
+               if (set != null) {
+                  list = this.transferTicksInBounds(list, set, bounds, false);
+               }
+            }
+         }
+      }
+
+      if (list != null) {
+         list.sort(ScheduledTick.getComparator());
+         if (remove) {
+            Iterator var12 = list.iterator();
+
+            while(var12.hasNext()) {
+               ScheduledTick<T> scheduledTick = (ScheduledTick)var12.next();
+               this.scheduledTickActions.remove(scheduledTick);
+               this.removeFromChunk(scheduledTick);
+               if (scheduledTick.time <= this.collectedTime) {
+                  this.dueTicks.remove(scheduledTick);
+               } else {
+                  Set<ScheduledTick<T>> set2 = (Set)this.ticksByTime.get(scheduledTick.time);
+                  if (set2 != null && set2.remove(scheduledTick)) {
+                     --this.waitingTickCount;
+                     if (set2.isEmpty()) {
+                        this.ticksByTime.remove(scheduledTick.time);
+                     }
+                  }
+               }
+            }
+         }
+      }
+
+      return list;
+   }
+
    @Nullable
    private List<ScheduledTick<T>> transferTicksInBounds(@Nullable List<ScheduledTick<T>> dst, Collection<ScheduledTick<T>> src, BlockBox bounds, boolean move) {
       Iterator iterator = src.iterator();
@@ -196,9 +319,19 @@ public class ServerTickScheduler<T> implements TickScheduler<T> {
    }
 
    private void addScheduledTick(ScheduledTick<T> tick) {
-      if (!this.scheduledTickActions.contains(tick)) {
-         this.scheduledTickActions.add(tick);
-         this.scheduledTickActionsInOrder.add(tick);
+      if (this.scheduledTickActions.add(tick)) {
+         if (tick.time <= this.collectedTime) {
+            this.dueTicks.add(tick);
+         } else {
+            ((Set)this.ticksByTime.computeIfAbsent(tick.time, (time) -> {
+               return Sets.newHashSet();
+            })).add(tick);
+            ++this.waitingTickCount;
+         }
+
+         ((Set)this.ticksByChunk.computeIfAbsent(getChunkPos(tick), (pos) -> {
+            return Sets.newHashSet();
+         })).add(tick);
       }
 
    }
@@ -5,6 +5,7 @@ import com.google.common.collect.Lists;
 import com.mojang.datafixers.DataFixer;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongList;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.longs.LongSets;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
@@ -160,6 +161,7 @@ public class ServerWorld extends World implements StructureWorldAccess {
    private final ServerEntityManager<Entity> entityManager;
    public boolean savingDisabled;
    private final SleepManager sleepManager;
+   private final ChunkPregenerator pregenerator;
    private int idleTimeout;
    private final PortalForcer portalForcer;
    private final ServerTickScheduler<Block> blockTickScheduler;
@@ -231,6 +233,7 @@ public class ServerWorld extends World implements StructureWorldAccess {
       }
 
       this.sleepManager = new SleepManager();
+      this.pregenerator = new ChunkPregenerator(this);
    }
 
    public void setWeather(int clearDuration, int rainDuration, boolean raining, boolean thundering) {
@@ -353,6 +356,8 @@ public class ServerWorld extends World implements StructureWorldAccess {
 
       this.calculateAmbientDarkness();
       this.tickTime();
+      profiler.swap("pregeneration");
+      this.pregenerator.tick();
       profiler.swap("chunkSource");
       this.getChunkManager().tick(shouldKeepTicking);
       profiler.swap("tickPending");
@@ -708,6 +713,25 @@ public class ServerWorld extends World implements StructureWorldAccess {
       }
    }
 
+   /**
+    * Starts an incremental save. Level data and entities are saved right away,
+    * while chunks are saved over the following ticks by {@link #tickIncrementalSave(long)}.
+    */
+   public void startIncrementalSave() {
+      if (!this.savingDisabled) {
+         this.saveLevel();
+         this.getChunkManager().startIncrementalSave();
+         this.entityManager.save();
+      }
+   }
+
+   /**
+    * @return whether the incremental save is finished
+    */
+   public boolean tickIncrementalSave(long deadline) {
+      return this.savingDisabled || this.getChunkManager().tickIncrementalSave(deadline);
+   }
+
    private void saveLevel() {
       if (this.enderDragonFight != null) {
          this.server.getSaveProperties().setDragonFight(this.enderDragonFight.toNbt());
@@ -889,10 +913,37 @@ public class ServerWorld extends World implements StructureWorldAccess {
       }
    }
 
+   /**
+    * Notifies the navigations of loaded mobs that the collision shapes at the
+    * given positions changed, as {@link #updateListeners} does for one position.
+    *
+    * @param positions the positions as by {@link BlockPos#asLong()}
+    */
+   public void updateNavigations(LongList positions) {
+      if (!positions.isEmpty()) {
+         BlockPos.Mutable mutable = new BlockPos.Mutable();
+         Iterator var3 = this.loadedMobs.iterator();
+
+         while(var3.hasNext()) {
+            MobEntity mobEntity = (MobEntity)var3.next();
+            EntityNavigation entityNavigation = mobEntity.getNavigation();
+
+            for(int i = 0; i < positions.size() && !entityNavigation.shouldRecalculatePath(); ++i) {
+               entityNavigation.onBlockChanged(mutable.set(positions.getLong(i)));
+            }
+         }
+
+      }
+   }
+
    public void sendEntityStatus(Entity entity, byte status) {
       this.getChunkManager().sendToNearbyPlayers(entity, new EntityStatusS2CPacket(entity, status));
    }
 
+   public ChunkPregenerator getPregenerator() {
+      return this.pregenerator;
+   }
+
    public ServerChunkManager getChunkManager() {
       return this.serverChunkManager;
    }
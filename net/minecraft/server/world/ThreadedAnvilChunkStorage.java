@@ -3,6 +3,7 @@ package net.minecraft.server.world;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 import com.mojang.datafixers.DataFixer;
@@ -11,11 +12,16 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ByteMap;
 import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap.Entry;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectBidirectionalIterator;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import java.io.File;
@@ -24,6 +30,7 @@ import java.io.Writer;
 import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
@@ -41,6 +48,8 @@ import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import net.minecraft.client.util.profiler.SamplingChannel;
+import net.minecraft.client.util.profiler.SamplingRecorder;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.boss.dragon.EnderDragonPart;
@@ -67,6 +76,8 @@ import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.profiler.CsvWriter;
+import net.minecraft.util.profiler.MetricSamplerSupplier;
+import net.minecraft.util.profiler.MetricSuppliers;
 import net.minecraft.util.profiler.Profiler;
 import net.minecraft.util.thread.MessageListener;
 import net.minecraft.util.thread.TaskExecutor;
@@ -85,17 +96,31 @@ import net.minecraft.world.chunk.WorldChunk;
 import net.minecraft.world.gen.chunk.ChunkGenerator;
 import net.minecraft.world.level.storage.LevelStorage;
 import net.minecraft.world.poi.PointOfInterestStorage;
+import net.minecraft.world.storage.ChunkStatusIndex;
 import net.minecraft.world.storage.VersionedChunkStorage;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
 
-public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements ChunkHolder.PlayersWatchingChunkProvider {
+public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements ChunkHolder.PlayersWatchingChunkProvider, MetricSamplerSupplier {
    private static final byte field_29671 = -1;
    private static final byte field_29672 = 0;
    private static final byte field_29673 = 1;
    private static final Logger LOGGER = LogManager.getLogger();
+   private static final int TRACKER_TICK_BATCH_SIZE = 256;
+   private static volatile boolean parallelEntityTracking;
+   /**
+    * The number of ticks the shared packets of a chunk are kept for after they were built.
+    */
+   private static final int SHARED_CHUNK_PACKETS_LIFETIME = 100;
+   private static volatile boolean shareChunkPackets;
+   /**
+    * The latency above which the chunk send budget of a player is scaled down
+    * in proportion.
+    */
+   private static final int CHUNK_SEND_TARGET_LATENCY = 100;
+   private static volatile int chunkSendBudget;
    private static final int field_29674 = 200;
    private static final int field_29675 = 3;
    public static final int field_29669 = 33;
@@ -111,6 +136,11 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
    final ServerWorld world;
    private final ServerLightingProvider serverLightingProvider;
    private final ThreadExecutor<Runnable> mainThreadExecutor;
+   /**
+    * The chunks whose holders keep shared chunk packets, in the order the
+    * packets were built.
+    */
+   private final LongLinkedOpenHashSet chunksWithSharedPackets = new LongLinkedOpenHashSet();
    private final ChunkGenerator chunkGenerator;
    private final Supplier<PersistentStateManager> persistentStateManagerFactory;
    private final PointOfInterestStorage pointOfInterestStorage;
@@ -126,9 +156,20 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
    private final StructureManager structureManager;
    private final File saveDir;
    private final PlayerChunkWatchingManager playerChunkWatchingManager;
+   /**
+    * The players of the world by the chunk they are in, used to find the players
+    * an entity tracker has to check.
+    */
+   private final PlayerChunkGrid playerGrid = new PlayerChunkGrid();
+   private final Map<ServerPlayerEntity, ChunkSendQueue> chunkSendQueues = Maps.newHashMap();
+   private int chunksSentLastTick;
    private final Int2ObjectMap<ThreadedAnvilChunkStorage.EntityTracker> entityTrackers;
    private final Long2ByteMap chunkToType;
    private final Queue<Runnable> unloadTaskQueue;
+   private final Long2LongMap chunkSaveTimes = new Long2LongOpenHashMap();
+   private final LongArrayList incrementalSaveQueue = new LongArrayList();
+   private int incrementalSaveIndex;
+   private int incrementalSavedCount;
    int watchDistance;
 
    public ThreadedAnvilChunkStorage(ServerWorld world, LevelStorage.Session session, DataFixer dataFixer, StructureManager structureManager, Executor executor, ThreadExecutor<Runnable> mainThreadExecutor, ChunkProvider chunkProvider, ChunkGenerator chunkGenerator, WorldGenerationProgressListener worldGenerationProgressListener, ChunkStatusChangeListener chunkStatusChangeListener, Supplier<PersistentStateManager> persistentStateManagerFactory, int viewDistance, boolean dsync) {
@@ -161,6 +202,31 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
       this.persistentStateManagerFactory = persistentStateManagerFactory;
       this.pointOfInterestStorage = new PointOfInterestStorage(new File(this.saveDir, "poi"), dataFixer, dsync, world);
       this.setViewDistance(viewDistance);
+      MetricSuppliers.INSTANCE.add(this);
+   }
+
+   /**
+    * Sets whether entity tracker entries are ticked on the worker threads, with
+    * their packets sent afterwards on the server thread.
+    */
+   public static void setParallelEntityTracking(boolean parallelEntityTracking) {
+      ThreadedAnvilChunkStorage.parallelEntityTracking = parallelEntityTracking;
+   }
+
+   /**
+    * Sets whether the chunk data and light packets of a chunk are encoded once
+    * for all players that start watching it within a few seconds.
+    */
+   public static void setShareChunkPackets(boolean shareChunkPackets) {
+      ThreadedAnvilChunkStorage.shareChunkPackets = shareChunkPackets;
+   }
+
+   /**
+    * Sets the number of bytes of chunk data that may be sent to each player per
+    * tick, or {@code 0} to send chunks as soon as they are ready.
+    */
+   public static void setChunkSendBudget(int budget) {
+      chunkSendBudget = budget;
    }
 
    private static double getSquaredDistance(ChunkPos pos, Entity entity) {
@@ -371,16 +437,101 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
          this.completeAll();
          LOGGER.info((String)"ThreadedAnvilChunkStorage ({}): All chunks are saved", (Object)this.saveDir.getName());
       } else {
-         this.chunkHolders.values().stream().filter(ChunkHolder::isAccessible).forEach((chunkHolder) -> {
+         long l = 0L;
+         List<ChunkHolder> list2 = Lists.newArrayList((Iterable)this.chunkHolders.values());
+         Iterator var6 = list2.iterator();
+
+         while(var6.hasNext()) {
+            ChunkHolder chunkHolder = (ChunkHolder)var6.next();
+            if (chunkHolder.isAccessible()) {
+               Chunk chunk = (Chunk)chunkHolder.getSavingFuture().getNow((Object)null);
+               if (chunk instanceof ReadOnlyChunk || chunk instanceof WorldChunk) {
+                  if (chunk.needsSaving() && this.isSaveBacklogged()) {
+                     long m = Util.getMeasuringTimeNano();
+                     this.mainThreadExecutor.runTasks(() -> {
+                        return !this.isSaveBacklogged();
+                     });
+                     l += Util.getMeasuringTimeNano() - m;
+                  }
+
+                  this.save(chunk);
+                  chunkHolder.updateAccessibleStatus();
+               }
+            }
+         }
+
+         if (l > 0L) {
+            LOGGER.info((String)"ThreadedAnvilChunkStorage ({}): Waited {} ms for pending chunk writes while saving", (Object)this.saveDir.getName(), (Object)(l / 1000000L));
+         }
+      }
+
+   }
+
+   /**
+    * Starts an incremental save pass over the chunks that currently need saving.
+    * Chunks that have gone the longest without being saved come first.
+    *
+    * @see #tickIncrementalSave(long)
+    */
+   protected void startIncrementalSave() {
+      this.incrementalSaveQueue.clear();
+      this.incrementalSaveIndex = 0;
+      this.incrementalSavedCount = 0;
+      ObjectIterator var1 = this.chunkHolders.values().iterator();
+
+      while(var1.hasNext()) {
+         ChunkHolder chunkHolder = (ChunkHolder)var1.next();
+         if (chunkHolder.isAccessible()) {
             Chunk chunk = (Chunk)chunkHolder.getSavingFuture().getNow((Object)null);
-            if (chunk instanceof ReadOnlyChunk || chunk instanceof WorldChunk) {
-               this.save(chunk);
-               chunkHolder.updateAccessibleStatus();
+            if ((chunk instanceof ReadOnlyChunk || chunk instanceof WorldChunk) && chunk.needsSaving()) {
+               this.incrementalSaveQueue.add(chunkHolder.getPos().toLong());
             }
+         }
+      }
 
-         });
+      this.incrementalSaveQueue.sort((a, b) -> {
+         return Long.compare(this.chunkSaveTimes.get(a), this.chunkSaveTimes.get(b));
+      });
+   }
+
+   /**
+    * Saves chunks of the current incremental save pass until the deadline has passed
+    * or the storage worker is backlogged.
+    *
+    * @return whether the pass is finished
+    *
+    * @param deadline the {@linkplain Util#getMeasuringTimeNano() measuring time} at which to stop
+    */
+   protected boolean tickIncrementalSave(long deadline) {
+      while(this.incrementalSaveIndex < this.incrementalSaveQueue.size()) {
+         if (Util.getMeasuringTimeNano() >= deadline || this.isSaveBacklogged()) {
+            return false;
+         }
+
+         long l = this.incrementalSaveQueue.getLong(this.incrementalSaveIndex++);
+         ChunkHolder chunkHolder = (ChunkHolder)this.currentChunkHolders.get(l);
+         if (chunkHolder != null && chunkHolder.isAccessible()) {
+            Chunk chunk = (Chunk)chunkHolder.getSavingFuture().getNow((Object)null);
+            if ((chunk instanceof ReadOnlyChunk || chunk instanceof WorldChunk) && this.save(chunk)) {
+               ++this.incrementalSavedCount;
+               chunkHolder.updateAccessibleStatus();
+            }
+         }
       }
 
+      return true;
+   }
+
+   protected int getIncrementalSaveQueueSize() {
+      return this.incrementalSaveQueue.size();
+   }
+
+   protected int getIncrementalSaveIndex() {
+      return this.incrementalSaveIndex;
+   }
+
+   protected int getIncrementalSavedCount() {
+      return this.incrementalSavedCount;
    }
 
    protected void tick(BooleanSupplier shouldKeepTicking) {
@@ -392,9 +543,106 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
          this.unloadChunks(shouldKeepTicking);
       }
 
+      profiler.swap("shared_chunk_packets");
+      this.clearExpiredSharedChunkPackets();
+      profiler.swap("chunk_send_queues");
+      this.sendQueuedChunks();
       profiler.pop();
    }
 
+   private void sendQueuedChunks() {
+      this.chunksSentLastTick = 0;
+      Iterator iterator = this.chunkSendQueues.entrySet().iterator();
+
+      while(iterator.hasNext()) {
+         Map.Entry<ServerPlayerEntity, ChunkSendQueue> entry = (Map.Entry)iterator.next();
+         ServerPlayerEntity serverPlayerEntity = (ServerPlayerEntity)entry.getKey();
+         ChunkSendQueue chunkSendQueue = (ChunkSendQueue)entry.getValue();
+         if (serverPlayerEntity.world != this.world || chunkSendQueue.isEmpty()) {
+            iterator.remove();
+         } else {
+            this.sendQueuedChunks(serverPlayerEntity, chunkSendQueue);
+         }
+      }
+
+   }
+
+   /**
+    * Sends the queued chunks of the player closest to it first, for as long as the
+    * chunk data sent this tick is within the budget of the player.
+    */
+   private void sendQueuedChunks(ServerPlayerEntity player, ChunkSendQueue queue) {
+      long l = this.getChunkSendAllowance(player);
+      if (l > 0L) {
+         long[] ls = queue.getOrderedChunks(player);
+         long m = 0L;
+
+         for(int i = 0; i < ls.length && m < l; ++i) {
+            queue.remove(ls[i]);
+            ChunkHolder chunkHolder = this.getChunkHolder(ls[i]);
+            WorldChunk worldChunk = chunkHolder != null ? chunkHolder.getWorldChunk() : null;
+            if (worldChunk != null) {
+               this.sendChunkDataPackets(player, new Packet[2], worldChunk);
+               m += (long)ChunkHolder.getPacketSize(worldChunk);
+               ++this.chunksSentLastTick;
+            }
+         }
+
+      }
+   }
+
+   /**
+    * {@return the number of bytes of chunk data that may be sent to the player this
+    * tick} The budget is scaled down for players with a latency above {@value
+    * #CHUNK_SEND_TARGET_LATENCY} ms, and the data still waiting to be written to
+    * the connection counts against it.
+    */
+   private long getChunkSendAllowance(ServerPlayerEntity player) {
+      double d = (double)chunkSendBudget;
+      if (player.pingMilliseconds > CHUNK_SEND_TARGET_LATENCY) {
+         d = d * (double)CHUNK_SEND_TARGET_LATENCY / (double)player.pingMilliseconds;
+      }
+
+      return (long)d - player.networkHandler.connection.getPendingWriteBytes();
+   }
+
+   public List<SamplingRecorder> getSamplers() {
+      String string = "chunk-send-" + this.world.getRegistryKey().getValue();
+      return ImmutableList.of(SamplingRecorder.create(string + "-queued", SamplingChannel.NETWORK, this::getQueuedChunkSendCount), SamplingRecorder.create(string + "-sent", SamplingChannel.NETWORK, () -> {
+         return (double)this.chunksSentLastTick;
+      }));
+   }
+
+   private double getQueuedChunkSendCount() {
+      int i = 0;
+
+      ChunkSendQueue chunkSendQueue;
+      for(Iterator var2 = this.chunkSendQueues.values().iterator(); var2.hasNext(); i += chunkSendQueue.size()) {
+         chunkSendQueue = (ChunkSendQueue)var2.next();
+      }
+
+      return (double)i;
+   }
+
+   private void clearExpiredSharedChunkPackets() {
+      long l = this.world.getTime();
+
+      while(!this.chunksWithSharedPackets.isEmpty()) {
+         long m = this.chunksWithSharedPackets.firstLong();
+         ChunkHolder chunkHolder = this.getCurrentChunkHolder(m);
+         if (chunkHolder != null) {
+            if (l - chunkHolder.getSharedChunkPacketsTime() < (long)SHARED_CHUNK_PACKETS_LIFETIME) {
+               break;
+            }
+
+            chunkHolder.clearSharedChunkPackets();
+         }
+
+         this.chunksWithSharedPackets.removeFirstLong();
+      }
+
+   }
+
    private void unloadChunks(BooleanSupplier shouldKeepTicking) {
       LongIterator longIterator = this.unloadedChunks.iterator();
 
@@ -429,6 +677,7 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
                }
 
                this.save(chunk);
+               this.chunkSaveTimes.remove(pos);
                if (this.loadedChunks.remove(pos) && chunk instanceof WorldChunk) {
                   WorldChunk worldChunk = (WorldChunk)chunk;
                   this.world.unloadEntities(worldChunk);
@@ -639,7 +888,7 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
             this.totalChunksLoadedCount.getAndIncrement();
             Packet<?>[] packets = new Packet[2];
             this.getPlayersWatchingChunk(chunkPos, false).forEach((serverPlayerEntity) -> {
-               this.sendChunkDataPackets(serverPlayerEntity, packets, worldChunk);
+               this.sendOrQueueChunkDataPackets(serverPlayerEntity, packets, worldChunk);
             });
          });
       }, (runnable) -> {
@@ -685,9 +934,10 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
             }
 
             this.world.getProfiler().visit("chunkSave");
-            NbtCompound nbtCompound = ChunkSerializer.serialize(this.world, chunk);
-            this.setNbt(chunkPos, nbtCompound);
+            ChunkSerializer.Snapshot snapshot = ChunkSerializer.snapshot(this.world, chunk);
+            this.setNbt(chunkPos, CompletableFuture.supplyAsync(snapshot::toNbt, Util.getMainWorkerExecutor()));
             this.method_27053(chunkPos, chunkStatus.getChunkType());
+            this.chunkSaveTimes.put(chunkPos.toLong(), this.world.getTime());
             return true;
          } catch (Exception var5) {
             LOGGER.error((String)"Failed to save chunk {},{}", (Object)chunkPos.x, chunkPos.z, var5);
@@ -703,6 +953,16 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
       } else {
          NbtCompound nbtCompound2;
          try {
+            ChunkStatusIndex.Entry entry = (ChunkStatusIndex.Entry)this.getChunkStatus(chunkPos).join();
+            if (entry == null) {
+               this.method_27054(chunkPos);
+               return false;
+            }
+
+            if (entry.getStatus() != null) {
+               return this.method_27053(chunkPos, entry.getStatus().getChunkType()) == 1;
+            }
+
             nbtCompound2 = this.getUpdatedChunkNbt(chunkPos);
             if (nbtCompound2 == null) {
                this.method_27054(chunkPos);
@@ -738,6 +998,16 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
                this.sendWatchPackets(serverPlayerEntity, chunkPos, packets, bl, bl2);
             });
          }
+
+         if (i < j) {
+            Iterator var9 = this.chunkSendQueues.entrySet().iterator();
+
+            while(var9.hasNext()) {
+               Map.Entry<ServerPlayerEntity, ChunkSendQueue> entry = (Map.Entry)var9.next();
+               ChunkSectionPos chunkSectionPos = ((ServerPlayerEntity)entry.getKey()).getWatchedSection();
+               ((ChunkSendQueue)entry.getValue()).removeBeyond(chunkSectionPos.getSectionX(), chunkSectionPos.getSectionZ(), i);
+            }
+         }
       }
 
    }
@@ -749,7 +1019,7 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
             if (chunkHolder != null) {
                WorldChunk worldChunk = chunkHolder.getWorldChunk();
                if (worldChunk != null) {
-                  this.sendChunkDataPackets(player, packets, worldChunk);
+                  this.sendOrQueueChunkDataPackets(player, packets, worldChunk);
                }
 
                DebugInfoSender.sendChunkWatchingChange(this.world, pos);
@@ -757,6 +1027,11 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
          }
 
          if (!withinViewDistance && withinMaxWatchDistance) {
+            ChunkSendQueue chunkSendQueue = (ChunkSendQueue)this.chunkSendQueues.get(player);
+            if (chunkSendQueue != null) {
+               chunkSendQueue.remove(pos.toLong());
+            }
+
             player.sendUnloadChunkPacket(pos);
          }
 
@@ -832,12 +1107,15 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
       int i = ChunkSectionPos.getSectionCoord(player.getBlockX());
       int j = ChunkSectionPos.getSectionCoord(player.getBlockZ());
       if (added) {
+         this.playerGrid.update(player);
          this.playerChunkWatchingManager.add(ChunkPos.toLong(i, j), player, bl);
          this.updateWatchedSection(player);
          if (!bl) {
             this.ticketManager.handleChunkEnter(ChunkSectionPos.from((Entity)player), player);
          }
       } else {
+         this.chunkSendQueues.remove(player);
+         this.playerGrid.remove(player);
          ChunkSectionPos chunkSectionPos = player.getWatchedSection();
          this.playerChunkWatchingManager.remove(chunkSectionPos.toChunkPos().toLong(), player);
          if (!bl2) {
@@ -872,12 +1150,16 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
     * @see ServerChunkManager#updatePosition(ServerPlayerEntity)
     */
    public void updatePosition(ServerPlayerEntity player) {
+      if (this.world.getPlayers().contains(player)) {
+         this.playerGrid.update(player);
+      }
+
       ObjectIterator var2 = this.entityTrackers.values().iterator();
 
       while(var2.hasNext()) {
          ThreadedAnvilChunkStorage.EntityTracker entityTracker = (ThreadedAnvilChunkStorage.EntityTracker)var2.next();
          if (entityTracker.entity == player) {
-            entityTracker.updateTrackedStatus(this.world.getPlayers());
+            entityTracker.updateTrackedStatus(this.playerGrid);
          } else {
             entityTracker.updateTrackedStatus(player);
          }
@@ -958,17 +1240,33 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
 
    }
 
+   /**
+    * Returns the players watching the chunk. Players the chunk is still queued to
+    * be sent to are left out, as they get its current state once it is sent.
+    */
    public Stream<ServerPlayerEntity> getPlayersWatchingChunk(ChunkPos chunkPos, boolean onlyOnWatchDistanceEdge) {
-      return this.playerChunkWatchingManager.getPlayersWatchingChunk(chunkPos.toLong()).filter((serverPlayerEntity) -> {
+      long l = chunkPos.toLong();
+      return this.playerChunkWatchingManager.getPlayersWatchingChunk(l).filter((serverPlayerEntity) -> {
          int i = getChebyshevDistance(chunkPos, serverPlayerEntity, true);
          if (i > this.watchDistance) {
             return false;
+         } else if (onlyOnWatchDistanceEdge && i != this.watchDistance) {
+            return false;
          } else {
-            return !onlyOnWatchDistanceEdge || i == this.watchDistance;
+            return !this.isChunkQueued(serverPlayerEntity, l);
          }
       });
    }
 
+   /**
+    * {@return whether the chunk at {@code pos} is queued to be sent to the player
+    * and was not sent yet}
+    */
+   private boolean isChunkQueued(ServerPlayerEntity player, long pos) {
+      ChunkSendQueue chunkSendQueue = (ChunkSendQueue)this.chunkSendQueues.get(player);
+      return chunkSendQueue != null && chunkSendQueue.contains(pos);
+   }
+
    protected void loadEntity(Entity entity) {
       if (!(entity instanceof EnderDragonPart)) {
          EntityType<?> entityType = entity.getType();
@@ -980,7 +1278,7 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
             } else {
                ThreadedAnvilChunkStorage.EntityTracker entityTracker = new ThreadedAnvilChunkStorage.EntityTracker(entity, i, j, entityType.alwaysUpdateVelocity());
                this.entityTrackers.put(entity.getId(), entityTracker);
-               entityTracker.updateTrackedStatus(this.world.getPlayers());
+               entityTracker.updateTrackedStatus(this.playerGrid);
                if (entity instanceof ServerPlayerEntity) {
                   ServerPlayerEntity serverPlayerEntity = (ServerPlayerEntity)entity;
                   this.handlePlayerAddedOrRemoved(serverPlayerEntity, true);
@@ -1029,15 +1327,24 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
    protected void tickEntityMovement() {
       List<ServerPlayerEntity> list = Lists.newArrayList();
       List<ServerPlayerEntity> list2 = this.world.getPlayers();
+      Iterator var4 = list2.iterator();
+
+      while(var4.hasNext()) {
+         ServerPlayerEntity serverPlayerEntity = (ServerPlayerEntity)var4.next();
+         this.playerGrid.update(serverPlayerEntity);
+      }
+
+      boolean bl = parallelEntityTracking && this.entityTrackers.size() > TRACKER_TICK_BATCH_SIZE;
+      List<EntityTrackerEntry> list3 = bl ? new ObjectArrayList(this.entityTrackers.size()) : null;
+      ObjectIterator var3 = this.entityTrackers.values().iterator();
 
-      ObjectIterator var3;
       ThreadedAnvilChunkStorage.EntityTracker entityTracker2;
-      for(var3 = this.entityTrackers.values().iterator(); var3.hasNext(); entityTracker2.entry.tick()) {
+      while(var3.hasNext()) {
          entityTracker2 = (ThreadedAnvilChunkStorage.EntityTracker)var3.next();
          ChunkSectionPos chunkSectionPos = entityTracker2.trackedSection;
          ChunkSectionPos chunkSectionPos2 = ChunkSectionPos.from(entityTracker2.entity);
          if (!Objects.equals(chunkSectionPos, chunkSectionPos2)) {
-            entityTracker2.updateTrackedStatus(list2);
+            entityTracker2.updateTrackedStatus(this.playerGrid);
             Entity entity = entityTracker2.entity;
             if (entity instanceof ServerPlayerEntity) {
                list.add((ServerPlayerEntity)entity);
@@ -1045,6 +1352,16 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
 
             entityTracker2.trackedSection = chunkSectionPos2;
          }
+
+         if (bl && entityTracker2.entry.canTickDeferred()) {
+            list3.add(entityTracker2.entry);
+         } else {
+            entityTracker2.entry.tick();
+         }
+      }
+
+      if (bl) {
+         this.tickTrackerEntriesInParallel(list3);
       }
 
       if (!list.isEmpty()) {
@@ -1058,6 +1375,62 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
 
    }
 
+   /**
+    * Ticks the given entries in batches on the worker threads and the server
+    * thread, then sends the packets they produced in the order of the list, so
+    * that every player receives them in the same order on every run.
+    *
+    * <p>The server thread claims batches like the workers do, so it only waits
+    * for batches a worker is already ticking. If the workers are busy with other
+    * tasks, such as world generation, it ticks every batch itself.
+    */
+   private void tickTrackerEntriesInParallel(List<EntityTrackerEntry> entries) {
+      CompletableFuture<?>[] completableFutures = new CompletableFuture[(entries.size() + TRACKER_TICK_BATCH_SIZE - 1) / TRACKER_TICK_BATCH_SIZE];
+
+      int i;
+      for(i = 0; i < completableFutures.length; ++i) {
+         completableFutures[i] = new CompletableFuture();
+      }
+
+      AtomicInteger atomicInteger = new AtomicInteger();
+      Runnable runnable = () -> {
+         tickTrackerBatches(entries, completableFutures, atomicInteger);
+      };
+
+      for(i = 1; i < completableFutures.length; ++i) {
+         Util.getMainWorkerExecutor().execute(runnable);
+      }
+
+      runnable.run();
+      CompletableFuture.allOf(completableFutures).join();
+
+      for(i = 0; i < entries.size(); ++i) {
+         ((EntityTrackerEntry)entries.get(i)).sendPendingPackets();
+      }
+
+   }
+
+   /**
+    * Ticks the batches of entries that no other thread has claimed yet.
+    */
+   private static void tickTrackerBatches(List<EntityTrackerEntry> entries, CompletableFuture<?>[] batches, AtomicInteger nextBatch) {
+      int i;
+      while((i = nextBatch.getAndIncrement()) < batches.length) {
+         try {
+            int j = Math.min((i + 1) * TRACKER_TICK_BATCH_SIZE, entries.size());
+
+            for(int k = i * TRACKER_TICK_BATCH_SIZE; k < j; ++k) {
+               ((EntityTrackerEntry)entries.get(k)).tickDeferred();
+            }
+
+            batches[i].complete(null);
+         } catch (Throwable var6) {
+            batches[i].completeExceptionally(var6);
+         }
+      }
+
+   }
+
    public void sendToOtherNearbyPlayers(Entity entity, Packet<?> packet) {
       ThreadedAnvilChunkStorage.EntityTracker entityTracker = (ThreadedAnvilChunkStorage.EntityTracker)this.entityTrackers.get(entity.getId());
       if (entityTracker != null) {
@@ -1074,10 +1447,37 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
 
    }
 
+   /**
+    * Sends the chunk to the player, or queues it to be sent within the player's
+    * budget if chunk sends are paced.
+    */
+   private void sendOrQueueChunkDataPackets(ServerPlayerEntity player, Packet<?>[] packets, WorldChunk chunk) {
+      if (chunkSendBudget > 0) {
+         ((ChunkSendQueue)this.chunkSendQueues.computeIfAbsent(player, (playerx) -> {
+            return new ChunkSendQueue();
+         })).add(chunk.getPos().toLong());
+      } else {
+         this.sendChunkDataPackets(player, packets, chunk);
+      }
+
+   }
+
    private void sendChunkDataPackets(ServerPlayerEntity player, Packet<?>[] packets, WorldChunk chunk) {
       if (packets[0] == null) {
-         packets[0] = new ChunkDataS2CPacket(chunk);
-         packets[1] = new LightUpdateS2CPacket(chunk.getPos(), this.serverLightingProvider, (BitSet)null, (BitSet)null, true);
+         ChunkHolder chunkHolder = shareChunkPackets ? this.getCurrentChunkHolder(chunk.getPos().toLong()) : null;
+         if (chunkHolder != null) {
+            long l = this.world.getTime();
+            Packet<?>[] packets2 = chunkHolder.getSharedChunkPackets(chunk, l);
+            if (chunkHolder.getSharedChunkPacketsTime() == l) {
+               this.chunksWithSharedPackets.addAndMoveToLast(chunk.getPos().toLong());
+            }
+
+            packets[0] = packets2[0];
+            packets[1] = packets2[1];
+         } else {
+            packets[0] = new ChunkDataS2CPacket(chunk);
+            packets[1] = new LightUpdateS2CPacket(chunk.getPos(), this.serverLightingProvider, (BitSet)null, (BitSet)null, true);
+         }
       }
 
       player.sendInitialChunkPackets(chunk.getPos(), packets[0], packets[1]);
@@ -1237,13 +1637,18 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
        * <p>If this tracker should be listened by the player, the player's tracking
        * listener is added if it is not in the listeners; if this tracker should not be
        * listened by the player, the player's tracking listener is removed if it is in
-       * the listeners.
+       * the listeners. The entity is not listened by players its chunk is still queued
+       * to be sent to, until the chunk is sent.
        */
       public void updateTrackedStatus(ServerPlayerEntity player) {
          if (player != this.entity) {
             Vec3d vec3d = player.getPos().subtract(this.entry.getLastPos());
             int i = Math.min(this.getMaxTrackDistance(), (ThreadedAnvilChunkStorage.this.watchDistance - 1) * 16);
             boolean bl = vec3d.x >= (double)(-i) && vec3d.x <= (double)i && vec3d.z >= (double)(-i) && vec3d.z <= (double)i && this.entity.canBeSpectated(player);
+            if (bl && ThreadedAnvilChunkStorage.this.isChunkQueued(player, this.entity.getChunkPos().toLong())) {
+               bl = false;
+            }
+
             if (bl) {
                if (this.listeners.add(player.networkHandler)) {
                   this.entry.startTracking(player);
@@ -1274,6 +1679,28 @@ public class ThreadedAnvilChunkStorage extends VersionedChunkStorage implements
          return this.adjustTrackingDistance(i);
       }
 
+      /**
+       * Updates the tracked status of this tracker's entity for the players near it
+       * and the players currently listening to it, which are the only players whose
+       * status can change.
+       * 
+       * @see updateTrackedStatus(ServerPlayerEntity)
+       */
+      public void updateTrackedStatus(PlayerChunkGrid playerGrid) {
+         Vec3d vec3d = this.entry.getLastPos();
+         int i = Math.min(this.getMaxTrackDistance(), (ThreadedAnvilChunkStorage.this.watchDistance - 1) * 16);
+         List<ServerPlayerEntity> list = Lists.newArrayList();
+         playerGrid.collectPlayers(ChunkSectionPos.getSectionCoord(MathHelper.floor(vec3d.x)), ChunkSectionPos.getSectionCoord(MathHelper.floor(vec3d.z)), ChunkSectionPos.getSectionCoord(i) + 1, list);
+         Iterator var5 = this.listeners.iterator();
+
+         while(var5.hasNext()) {
+            EntityTrackingListener entityTrackingListener = (EntityTrackingListener)var5.next();
+            list.add(entityTrackingListener.getPlayer());
+         }
+
+         this.updateTrackedStatus(list);
+      }
+
       /**
        * Updates the tracked status of this tracker's entity for the given players.
        * 
@@ -0,0 +1,80 @@
+package net.minecraft.util.shape;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleList;
+import net.minecraft.util.math.AxisCycleDirection;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Direction;
+
+/**
+ * The full cube offset to a block position.
+ *
+ * <p>Collisions against it are computed from its bounds, with the same results
+ * as for {@code VoxelShapes.fullCube().offset(x, y, z)}.
+ */
+public final class OffsetCubeShape extends VoxelShape {
+   private final int x;
+   private final int y;
+   private final int z;
+
+   OffsetCubeShape(int x, int y, int z) {
+      super(VoxelShapes.fullCube().voxels);
+      this.x = x;
+      this.y = y;
+      this.z = z;
+   }
+
+   protected DoubleList getPointPositions(Direction.Axis axis) {
+      double d = (double)axis.choose(this.x, this.y, this.z);
+      return DoubleArrayList.wrap(new double[]{d, d + 1.0D});
+   }
+
+   protected double getPointPosition(Direction.Axis axis, int index) {
+      return (double)(axis.choose(this.x, this.y, this.z) + index);
+   }
+
+   protected int getCoordIndex(Direction.Axis axis, double coord) {
+      double d = (double)axis.choose(this.x, this.y, this.z);
+      if (coord < d) {
+         return -1;
+      } else {
+         return coord < d + 1.0D ? 0 : 1;
+      }
+   }
+
+   protected double calculateMaxDistance(AxisCycleDirection axisCycle, Box box, double maxDist) {
+      if (Math.abs(maxDist) < 1.0E-7D) {
+         return 0.0D;
+      } else {
+         AxisCycleDirection axisCycleDirection = axisCycle.opposite();
+         Direction.Axis axis = axisCycleDirection.cycle(Direction.Axis.X);
+         Direction.Axis axis2 = axisCycleDirection.cycle(Direction.Axis.Y);
+         Direction.Axis axis3 = axisCycleDirection.cycle(Direction.Axis.Z);
+         double d = (double)axis.choose(this.x, this.y, this.z);
+         double e = (double)axis2.choose(this.x, this.y, this.z);
+         double f = (double)axis3.choose(this.x, this.y, this.z);
+         if (box.getMin(axis2) + 1.0E-7D < e + 1.0D && box.getMax(axis2) - 1.0E-7D >= e && box.getMin(axis3) + 1.0E-7D < f + 1.0D && box.getMax(axis3) - 1.0E-7D >= f) {
+            double g;
+            if (maxDist > 0.0D) {
+               double h = box.getMax(axis);
+               if (h - 1.0E-7D < d) {
+                  g = d - h;
+                  if (g >= -1.0E-7D) {
+                     maxDist = Math.min(maxDist, g);
+                  }
+               }
+            } else {
+               double h = box.getMin(axis);
+               if (h + 1.0E-7D >= d + 1.0D) {
+                  g = d + 1.0D - h;
+                  if (g <= 1.0E-7D) {
+                     maxDist = Math.max(maxDist, g);
+                  }
+               }
+            }
+         }
+
+         return maxDist;
+      }
+   }
+}
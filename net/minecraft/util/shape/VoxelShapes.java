@@ -40,6 +40,13 @@ public final class VoxelShapes {
       return FULL_CUBE;
    }
 
+   /**
+    * {@return the full cube offset to the block at the given coordinates}
+    */
+   public static VoxelShape fullCubeAt(int x, int y, int z) {
+      return new OffsetCubeShape(x, y, z);
+   }
+
    public static VoxelShape cuboid(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
       if (!(minX > maxX) && !(minY > maxY) && !(minZ > maxZ)) {
          return cuboidUnchecked(minX, minY, minZ, maxX, maxY, maxZ);
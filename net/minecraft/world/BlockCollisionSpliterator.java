@@ -18,6 +18,9 @@ import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.shape.VoxelShape;
 import net.minecraft.util.shape.VoxelShapes;
 import net.minecraft.world.border.WorldBorder;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
 import org.jetbrains.annotations.Nullable;
 
 public class BlockCollisionSpliterator extends AbstractSpliterator<VoxelShape> {
@@ -31,6 +34,16 @@ public class BlockCollisionSpliterator extends AbstractSpliterator<VoxelShape> {
    private final CollisionView world;
    private boolean checkWorldBorder;
    private final BiPredicate<BlockState, BlockPos> blockPredicate;
+   private int chunkX = Integer.MIN_VALUE;
+   private int chunkZ = Integer.MIN_VALUE;
+   @Nullable
+   private BlockView chunk;
+   /**
+    * The chunk whose sections can be checked for emptiness, or {@code null} if
+    * the chunk is not loaded or its block states do not come from its sections.
+    */
+   @Nullable
+   private Chunk sectionChunk;
 
    public BlockCollisionSpliterator(CollisionView world, @Nullable Entity entity, Box box) {
       this(world, entity, box, (state, pos) -> {
@@ -73,23 +86,32 @@ public class BlockCollisionSpliterator extends AbstractSpliterator<VoxelShape> {
             }
 
             BlockView blockView = this.getChunk(i, k);
-            if (blockView == null) {
+            if (blockView == null || this.sectionChunk != null && this.isInEmptySection(j)) {
                continue;
             }
 
             this.pos.set(i, j, k);
             BlockState blockState = blockView.getBlockState(this.pos);
-            if (!this.blockPredicate.test(blockState, this.pos) || l == 1 && !blockState.exceedsCube() || l == 2 && !blockState.isOf(Blocks.MOVING_PISTON)) {
+            if (blockState.hasEmptyCollisionShape() || !this.blockPredicate.test(blockState, this.pos) || l == 1 && !blockState.exceedsCube() || l == 2 && !blockState.isOf(Blocks.MOVING_PISTON)) {
                continue;
             }
 
+            if (blockState.hasFullCubeCollisionShape()) {
+               if (!this.box.intersects((double)i, (double)j, (double)k, (double)i + 1.0D, (double)j + 1.0D, (double)k + 1.0D)) {
+                  continue;
+               }
+
+               action.accept(VoxelShapes.fullCubeAt(i, j, k));
+               return true;
+            }
+
             VoxelShape voxelShape = blockState.getCollisionShape(this.world, this.pos, this.context);
             if (voxelShape == VoxelShapes.fullCube()) {
                if (!this.box.intersects((double)i, (double)j, (double)k, (double)i + 1.0D, (double)j + 1.0D, (double)k + 1.0D)) {
                   continue;
                }
 
-               action.accept(voxelShape.offset((double)i, (double)j, (double)k));
+               action.accept(VoxelShapes.fullCubeAt(i, j, k));
                return true;
             }
 
@@ -106,11 +128,36 @@ public class BlockCollisionSpliterator extends AbstractSpliterator<VoxelShape> {
       }
    }
 
+   /**
+    * Returns the chunk containing the given column. The last chunk is kept, since
+    * consecutive blocks of the iteration are mostly in the same chunk.
+    */
    @Nullable
    private BlockView getChunk(int x, int z) {
       int i = ChunkSectionPos.getSectionCoord(x);
       int j = ChunkSectionPos.getSectionCoord(z);
-      return this.world.getChunkAsView(i, j);
+      if (i != this.chunkX || j != this.chunkZ) {
+         this.chunkX = i;
+         this.chunkZ = j;
+         this.chunk = this.world.getChunkAsView(i, j);
+         if (this.chunk instanceof Chunk && (!(this.chunk instanceof WorldChunk) || !((WorldChunk)this.chunk).getWorld().isDebugWorld())) {
+            this.sectionChunk = (Chunk)this.chunk;
+         } else {
+            this.sectionChunk = null;
+         }
+      }
+
+      return this.chunk;
+   }
+
+   /**
+    * {@return whether the section of the current chunk at the given Y coordinate
+    * only contains air}
+    */
+   private boolean isInEmptySection(int y) {
+      ChunkSection[] chunkSections = this.sectionChunk.getSectionArray();
+      int i = this.sectionChunk.getSectionIndex(y);
+      return i < 0 || i >= chunkSections.length || ChunkSection.isEmpty(chunkSections[i]);
    }
 
    boolean offerWorldBorderShape(Consumer<? super VoxelShape> action) {
@@ -1,5 +1,6 @@
 package net.minecraft.world;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
@@ -9,6 +10,7 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -16,6 +18,7 @@ import java.util.Map.Entry;
 import java.util.function.Function;
 import net.minecraft.SharedConstants;
 import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.entity.EntityType;
 import net.minecraft.fluid.Fluid;
@@ -40,6 +43,7 @@ import net.minecraft.world.chunk.ChunkManager;
 import net.minecraft.world.chunk.ChunkNibbleArray;
 import net.minecraft.world.chunk.ChunkSection;
 import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.PalettedContainer;
 import net.minecraft.world.chunk.ProtoChunk;
 import net.minecraft.world.chunk.ReadOnlyChunk;
 import net.minecraft.world.chunk.UpgradeData;
@@ -89,9 +93,7 @@ public class ChunkSerializer {
          NbtCompound nbtCompound2 = nbtList.getCompound(j);
          int k = nbtCompound2.getByte("Y");
          if (nbtCompound2.contains("Palette", 9) && nbtCompound2.contains("BlockStates", 12)) {
-            ChunkSection chunkSection = new ChunkSection(k);
-            chunkSection.getContainer().read(nbtCompound2.getList("Palette", 10), nbtCompound2.getLongArray("BlockStates"));
-            chunkSection.calculateCounts();
+            ChunkSection chunkSection = new ChunkSection(k, nbtCompound2.getList("Palette", 10), nbtCompound2.getLongArray("BlockStates"));
             if (!chunkSection.isEmpty()) {
                chunkSections[world.sectionCoordToIndex(k)] = chunkSection;
             }
@@ -100,12 +102,17 @@ public class ChunkSerializer {
          }
 
          if (bl) {
+            ChunkNibbleArray chunkNibbleArray;
             if (nbtCompound2.contains("BlockLight", 7)) {
-               lightingProvider.enqueueSectionData(LightType.BLOCK, ChunkSectionPos.from(pos, k), new ChunkNibbleArray(nbtCompound2.getByteArray("BlockLight")), true);
+               chunkNibbleArray = new ChunkNibbleArray(nbtCompound2.getByteArray("BlockLight"));
+               chunkNibbleArray.trim();
+               lightingProvider.enqueueSectionData(LightType.BLOCK, ChunkSectionPos.from(pos, k), chunkNibbleArray, true);
             }
 
             if (bl2 && nbtCompound2.contains("SkyLight", 7)) {
-               lightingProvider.enqueueSectionData(LightType.SKY, ChunkSectionPos.from(pos, k), new ChunkNibbleArray(nbtCompound2.getByteArray("SkyLight")), true);
+               chunkNibbleArray = new ChunkNibbleArray(nbtCompound2.getByteArray("SkyLight"));
+               chunkNibbleArray.trim();
+               lightingProvider.enqueueSectionData(LightType.SKY, ChunkSectionPos.from(pos, k), chunkNibbleArray, true);
             }
          }
       }
@@ -246,6 +253,19 @@ public class ChunkSerializer {
    }
 
    public static NbtCompound serialize(ServerWorld world, Chunk chunk) {
+      return snapshot(world, chunk).toNbt();
+   }
+
+   /**
+    * Captures everything needed to serialize the given chunk. This must be
+    * called on the server thread, but the returned snapshot can be turned into
+    * NBT on any thread.
+    *
+    * <p>Block states are copied out of their paletted containers, while the light
+    * arrays are shared since the lighting provider never modifies arrays it has
+    * published. Everything else is written to NBT right away.
+    */
+   public static ChunkSerializer.Snapshot snapshot(ServerWorld world, Chunk chunk) {
       ChunkPos chunkPos = chunk.getPos();
       NbtCompound nbtCompound = new NbtCompound();
       NbtCompound nbtCompound2 = new NbtCompound();
@@ -262,7 +282,7 @@ public class ChunkSerializer {
       }
 
       ChunkSection[] chunkSections = chunk.getSectionArray();
-      NbtList nbtList = new NbtList();
+      List<ChunkSerializer.SectionSnapshot> list = Lists.newArrayList();
       LightingProvider lightingProvider = world.getChunkManager().getLightingProvider();
       boolean bl = chunk.isLightOn();
 
@@ -273,25 +293,10 @@ public class ChunkSerializer {
          ChunkNibbleArray chunkNibbleArray = lightingProvider.get(LightType.BLOCK).getLightSection(ChunkSectionPos.from(chunkPos, i));
          ChunkNibbleArray chunkNibbleArray2 = lightingProvider.get(LightType.SKY).getLightSection(ChunkSectionPos.from(chunkPos, i));
          if (chunkSection != WorldChunk.EMPTY_SECTION || chunkNibbleArray != null || chunkNibbleArray2 != null) {
-            NbtCompound nbtCompound3 = new NbtCompound();
-            nbtCompound3.putByte("Y", (byte)(i & 255));
-            if (chunkSection != WorldChunk.EMPTY_SECTION) {
-               chunkSection.getContainer().write(nbtCompound3, "Palette", "BlockStates");
-            }
-
-            if (chunkNibbleArray != null && !chunkNibbleArray.isUninitialized()) {
-               nbtCompound3.putByteArray("BlockLight", chunkNibbleArray.asByteArray());
-            }
-
-            if (chunkNibbleArray2 != null && !chunkNibbleArray2.isUninitialized()) {
-               nbtCompound3.putByteArray("SkyLight", chunkNibbleArray2.asByteArray());
-            }
-
-            nbtList.add(nbtCompound3);
+            list.add(new ChunkSerializer.SectionSnapshot(i, chunkSection != WorldChunk.EMPTY_SECTION ? chunkSection.getContainer().snapshot() : null, chunkNibbleArray != null && !chunkNibbleArray.isUninitialized() ? chunkNibbleArray : null, chunkNibbleArray2 != null && !chunkNibbleArray2.isUninitialized() ? chunkNibbleArray2 : null));
          }
       }
 
-      nbtCompound2.put("Sections", nbtList);
       if (bl) {
          nbtCompound2.putBoolean("isLightOn", true);
       }
@@ -360,13 +365,13 @@ public class ChunkSerializer {
       while(var29.hasNext()) {
          Entry<Heightmap.Type, Heightmap> entry = (Entry)var29.next();
          if (chunk.getStatus().getHeightmapTypes().contains(entry.getKey())) {
-            nbtCompound6.put(((Heightmap.Type)entry.getKey()).getName(), new NbtLongArray(((Heightmap)entry.getValue()).asLongArray()));
+            nbtCompound6.put(((Heightmap.Type)entry.getKey()).getName(), new NbtLongArray((long[])((Heightmap)entry.getValue()).asLongArray().clone()));
          }
       }
 
       nbtCompound2.put("Heightmaps", nbtCompound6);
       nbtCompound2.put("Structures", writeStructures(world, chunkPos, chunk.getStructureStarts(), chunk.getStructureReferences()));
-      return nbtCompound;
+      return new ChunkSerializer.Snapshot(nbtCompound, list);
    }
 
    public static ChunkStatus.ChunkType getChunkType(@Nullable NbtCompound nbt) {
@@ -495,4 +500,65 @@ public class ChunkSerializer {
 
       return nbtList;
    }
+
+   public static class Snapshot {
+      private final NbtCompound nbt;
+      private final List<ChunkSerializer.SectionSnapshot> sections;
+
+      Snapshot(NbtCompound nbt, List<ChunkSerializer.SectionSnapshot> sections) {
+         this.nbt = nbt;
+         this.sections = sections;
+      }
+
+      /**
+       * Writes the chunk to NBT. This may be called only once.
+       */
+      public NbtCompound toNbt() {
+         NbtList nbtList = new NbtList();
+         Iterator var2 = this.sections.iterator();
+
+         while(var2.hasNext()) {
+            ChunkSerializer.SectionSnapshot sectionSnapshot = (ChunkSerializer.SectionSnapshot)var2.next();
+            nbtList.add(sectionSnapshot.toNbt());
+         }
+
+         this.nbt.getCompound("Level").put("Sections", nbtList);
+         return this.nbt;
+      }
+   }
+
+   static class SectionSnapshot {
+      private final int y;
+      @Nullable
+      private final PalettedContainer.Snapshot<BlockState> blockStates;
+      @Nullable
+      private final ChunkNibbleArray blockLight;
+      @Nullable
+      private final ChunkNibbleArray skyLight;
+
+      SectionSnapshot(int y, @Nullable PalettedContainer.Snapshot<BlockState> blockStates, @Nullable ChunkNibbleArray blockLight, @Nullable ChunkNibbleArray skyLight) {
+         this.y = y;
+         this.blockStates = blockStates;
+         this.blockLight = blockLight;
+         this.skyLight = skyLight;
+      }
+
+      NbtCompound toNbt() {
+         NbtCompound nbtCompound = new NbtCompound();
+         nbtCompound.putByte("Y", (byte)(this.y & 255));
+         if (this.blockStates != null) {
+            this.blockStates.write(nbtCompound, "Palette", "BlockStates");
+         }
+
+         if (this.blockLight != null) {
+            nbtCompound.putByteArray("BlockLight", this.blockLight.toByteArray());
+         }
+
+         if (this.skyLight != null) {
+            nbtCompound.putByteArray("SkyLight", this.skyLight.toByteArray());
+         }
+
+         return nbtCompound;
+      }
+   }
 }
@@ -112,6 +112,24 @@ public class Heightmap {
       }
    }
 
+   /**
+    * Recomputes the height of a column after any number of its blocks at or
+    * below {@code topY} changed.
+    */
+   public void recalculate(int x, int z, int topY) {
+      BlockPos.Mutable mutable = new BlockPos.Mutable();
+
+      for(int i = Math.max(this.get(x, z) - 1, topY); i >= this.chunk.getBottomY(); --i) {
+         mutable.set(x, i, z);
+         if (this.blockPredicate.test(this.chunk.getBlockState(mutable))) {
+            this.set(x, z, i + 1);
+            return;
+         }
+      }
+
+      this.set(x, z, this.chunk.getBottomY());
+   }
+
    public int get(int x, int z) {
       return this.get(toIndex(x, z));
    }
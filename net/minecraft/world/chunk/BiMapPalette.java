@@ -17,6 +17,13 @@ public class BiMapPalette<T> implements Palette<T> {
    private final Function<NbtCompound, T> elementDeserializer;
    private final Function<T, NbtCompound> elementSerializer;
    private final int indexBits;
+   /**
+    * The last element looked up by {@link #getIndex}, which is usually the next
+    * one as well since containers are mostly written in runs of the same element.
+    */
+   @Nullable
+   private T lastObject;
+   private int lastIndex = -1;
 
    public BiMapPalette(IdList<T> idList, int indexBits, PaletteResizeListener<T> resizeHandler, Function<NbtCompound, T> elementDeserializer, Function<T, NbtCompound> elementSerializer) {
       this.idList = idList;
@@ -28,15 +35,21 @@ public class BiMapPalette<T> implements Palette<T> {
    }
 
    public int getIndex(T object) {
-      int i = this.map.getRawId(object);
-      if (i == -1) {
-         i = this.map.add(object);
-         if (i >= 1 << this.indexBits) {
-            i = this.resizeHandler.onResize(this.indexBits + 1, object);
+      if (object == this.lastObject && this.lastIndex != -1) {
+         return this.lastIndex;
+      } else {
+         int i = this.map.getRawId(object);
+         if (i == -1) {
+            i = this.map.add(object);
+            if (i >= 1 << this.indexBits) {
+               return this.resizeHandler.onResize(this.indexBits + 1, object);
+            }
          }
-      }
 
-      return i;
+         this.lastObject = object;
+         this.lastIndex = i;
+         return i;
+      }
    }
 
    public boolean accepts(Predicate<T> predicate) {
@@ -56,6 +69,7 @@ public class BiMapPalette<T> implements Palette<T> {
 
    public void fromPacket(PacketByteBuf buf) {
       this.map.clear();
+      this.lastIndex = -1;
       int i = buf.readVarInt();
 
       for(int j = 0; j < i; ++j) {
@@ -90,6 +104,7 @@ public class BiMapPalette<T> implements Palette<T> {
 
    public void readNbt(NbtList nbt) {
       this.map.clear();
+      this.lastIndex = -1;
 
       for(int i = 0; i < nbt.size(); ++i) {
          this.map.add(this.elementDeserializer.apply(nbt.getCompound(i)));
@@ -1,5 +1,6 @@
 package net.minecraft.world.chunk;
 
+import java.util.Arrays;
 import net.minecraft.util.Util;
 import net.minecraft.util.annotation.Debug;
 import org.jetbrains.annotations.Nullable;
@@ -10,6 +11,15 @@ public class ChunkNibbleArray {
    private static final int field_31405 = 4;
    @Nullable
    protected byte[] bytes;
+   /**
+    * The value of every nibble while there are no bytes.
+    */
+   private int uniformValue;
+   /**
+    * Whether this array was filled with {@link #uniformValue} rather than left
+    * uninitialized, which matters for saving and sending it.
+    */
+   private boolean uniform;
 
    public ChunkNibbleArray() {
    }
@@ -25,6 +35,25 @@ public class ChunkNibbleArray {
       this.bytes = new byte[size];
    }
 
+   /**
+    * Creates an initialized array with every nibble set to {@code value}. No bytes
+    * are allocated until a different value is set.
+    */
+   public static ChunkNibbleArray uniform(int value) {
+      ChunkNibbleArray chunkNibbleArray = new ChunkNibbleArray();
+      chunkNibbleArray.fill(value);
+      return chunkNibbleArray;
+   }
+
+   /**
+    * Sets every nibble to {@code value} and releases the bytes of this array.
+    */
+   public void fill(int value) {
+      this.bytes = null;
+      this.uniformValue = value & 15;
+      this.uniform = true;
+   }
+
    public int get(int x, int y, int z) {
       return this.get(this.getIndex(x, y, z));
    }
@@ -39,7 +68,7 @@ public class ChunkNibbleArray {
 
    private int get(int index) {
       if (this.bytes == null) {
-         return 0;
+         return this.uniformValue;
       } else {
          int i = this.divideByTwo(index);
          return this.isEven(index) ? this.bytes[i] & 15 : this.bytes[i] >> 4 & 15;
@@ -48,7 +77,11 @@ public class ChunkNibbleArray {
 
    private void set(int index, int value) {
       if (this.bytes == null) {
-         this.bytes = new byte[2048];
+         if (this.uniform && (value & 15) == this.uniformValue) {
+            return;
+         }
+
+         this.bytes = this.createBytes();
       }
 
       int i = this.divideByTwo(index);
@@ -70,14 +103,76 @@ public class ChunkNibbleArray {
 
    public byte[] asByteArray() {
       if (this.bytes == null) {
-         this.bytes = new byte[2048];
+         this.bytes = this.createBytes();
       }
 
       return this.bytes;
    }
 
+   /**
+    * {@return the bytes of this array, without keeping them for a uniform array}
+    * Unlike {@link #asByteArray()}, the result must not be modified. A uniform
+    * array allocates and fills new bytes on every call, so callers that only
+    * need a uniform value should check {@link #isUniform(int)} first.
+    */
+   public byte[] toByteArray() {
+      return this.bytes != null ? this.bytes : this.createBytes();
+   }
+
+   /**
+    * {@return a copy of the bytes of this array that the caller may keep and modify}
+    */
+   public byte[] copyByteArray() {
+      return this.bytes != null ? (byte[])this.bytes.clone() : this.createBytes();
+   }
+
+   private byte[] createBytes() {
+      byte[] bs = new byte[2048];
+      if (this.uniformValue != 0) {
+         Arrays.fill(bs, (byte)(this.uniformValue | this.uniformValue << 4));
+      }
+
+      return bs;
+   }
+
+   /**
+    * {@return whether every nibble of this array is {@code value}}
+    */
+   public boolean isUniform(int value) {
+      if (this.bytes == null) {
+         return this.uniformValue == value;
+      } else {
+         byte b = (byte)(value | value << 4);
+
+         for(int i = 0; i < this.bytes.length; ++i) {
+            if (this.bytes[i] != b) {
+               return false;
+            }
+         }
+
+         return true;
+      }
+   }
+
+   /**
+    * Releases the bytes of this array if every nibble has the same value.
+    */
+   public void trim() {
+      if (this.bytes != null && this.bytes.length == 2048) {
+         int i = this.get(0);
+         if (this.isUniform(i)) {
+            this.fill(i);
+         }
+      }
+
+   }
+
    public ChunkNibbleArray copy() {
-      return this.bytes == null ? new ChunkNibbleArray() : new ChunkNibbleArray((byte[])this.bytes.clone());
+      if (this.bytes == null) {
+         return this.uniform ? uniform(this.uniformValue) : new ChunkNibbleArray();
+      } else {
+         return new ChunkNibbleArray((byte[])this.bytes.clone());
+      }
    }
 
    public String toString() {
@@ -112,6 +207,6 @@ public class ChunkNibbleArray {
    }
 
    public boolean isUninitialized() {
-      return this.bytes == null;
+      return this.bytes == null && !this.uniform;
    }
 }
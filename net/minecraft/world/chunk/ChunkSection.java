@@ -6,7 +6,9 @@ import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.fluid.FluidState;
 import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtList;
 import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.math.ChunkSectionPos;
 import org.jetbrains.annotations.Nullable;
 
 public class ChunkSection {
@@ -32,6 +34,17 @@ public class ChunkSection {
       this.container = new PalettedContainer(PALETTE, Block.STATE_IDS, NbtHelper::toBlockState, NbtHelper::fromBlockState, Blocks.AIR.getDefaultState());
    }
 
+   /**
+    * Creates a section holding the given serialized block states. The block
+    * state array may become the storage of the section, so it must not be
+    * used afterwards.
+    */
+   public ChunkSection(int yOffset, NbtList paletteNbt, long[] blockStates) {
+      this.yOffset = blockCoordFromChunkCoord(yOffset);
+      this.container = new PalettedContainer(PALETTE, Block.STATE_IDS, NbtHelper::toBlockState, NbtHelper::fromBlockState, Blocks.AIR.getDefaultState(), paletteNbt, blockStates);
+      this.calculateCounts();
+   }
+
    public static int blockCoordFromChunkCoord(int chunkPos) {
       return chunkPos << 4;
    }
@@ -91,6 +104,30 @@ public class ChunkSection {
       return blockState2;
    }
 
+   /**
+    * Sets the first {@code count} of the given block states, checking for
+    * concurrent access once for the whole batch.
+    *
+    * @param positions the positions within the section, packed with {@link ChunkSectionPos#packLocal}
+    * @param oldStates an array receiving the replaced block states, if not {@code null}
+    */
+   public void setBlocks(short[] positions, BlockState[] states, @Nullable BlockState[] oldStates, int count) {
+      try {
+         this.lock();
+
+         for(int i = 0; i < count; ++i) {
+            short j = positions[i];
+            BlockState blockState = this.setBlockState(ChunkSectionPos.unpackLocalX(j), ChunkSectionPos.unpackLocalY(j), ChunkSectionPos.unpackLocalZ(j), states[i], false);
+            if (oldStates != null) {
+               oldStates[i] = blockState;
+            }
+         }
+      } finally {
+         this.unlock();
+      }
+
+   }
+
    public boolean isEmpty() {
       return this.nonEmptyBlockCount == 0;
    }
@@ -9,7 +9,7 @@ public class ColumnChunkNibbleArray extends ChunkNibbleArray {
 
    public ColumnChunkNibbleArray(ChunkNibbleArray chunkNibbleArray, int offset) {
       super(128);
-      System.arraycopy(chunkNibbleArray.asByteArray(), offset * 128, this.bytes, 0, 128);
+      System.arraycopy(chunkNibbleArray.toByteArray(), offset * 128, this.bytes, 0, 128);
    }
 
    protected int getIndex(int x, int y, int z) {
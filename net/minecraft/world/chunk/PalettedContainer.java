@@ -7,6 +7,7 @@ import java.util.concurrent.Semaphore;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
 import net.minecraft.nbt.NbtList;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.util.collection.IdList;
@@ -20,6 +21,17 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
    private static final int field_31411 = 4096;
    public static final int field_31409 = 9;
    public static final int field_31410 = 4;
+   /**
+    * The storage sent in packets for a container with a singular palette, which
+    * keep the 4-bit layout so that clients can read them.
+    */
+   private static final long[] EMPTY_PACKET_STORAGE = new long[256];
+   /**
+    * Whether containers detect access from multiple threads at once, which is
+    * only worth its cost while debugging and is enabled with the
+    * {@code minecraft.checkPalettedContainerAccess} system property.
+    */
+   private static final boolean CHECK_ACCESS = Boolean.getBoolean("minecraft.checkPalettedContainerAccess");
    private final Palette<T> fallbackPalette;
    private final PaletteResizeListener<T> noOpPaletteResizeHandler = (newSize, added) -> {
       return 0;
@@ -28,33 +40,56 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
    private final Function<NbtCompound, T> elementDeserializer;
    private final Function<T, NbtCompound> elementSerializer;
    private final T defaultValue;
+   /**
+    * The indices of the elements in the palette, or {@code null} if the palette
+    * is a {@link SingularPalette} and every element has index 0.
+    */
+   @Nullable
    protected PackedIntegerArray data;
    private Palette<T> palette;
    private int paletteSize;
-   private final Semaphore writeLock = new Semaphore(1);
+   @Nullable
+   private final Semaphore writeLock = CHECK_ACCESS ? new Semaphore(1) : null;
    @Nullable
    private final AtomicStack<Pair<Thread, StackTraceElement[]>> lockStack = null;
 
    public void lock() {
-      if (this.lockStack != null) {
-         Thread thread = Thread.currentThread();
-         this.lockStack.push(Pair.of(thread, thread.getStackTrace()));
-      }
+      if (CHECK_ACCESS) {
+         if (this.lockStack != null) {
+            Thread thread = Thread.currentThread();
+            this.lockStack.push(Pair.of(thread, thread.getStackTrace()));
+         }
 
-      LockHelper.checkLock(this.writeLock, this.lockStack, "PalettedContainer");
+         LockHelper.checkLock(this.writeLock, this.lockStack, "PalettedContainer");
+      }
    }
 
    public void unlock() {
-      this.writeLock.release();
+      if (CHECK_ACCESS) {
+         this.writeLock.release();
+      }
    }
 
    public PalettedContainer(Palette<T> fallbackPalette, IdList<T> idList, Function<NbtCompound, T> elementDeserializer, Function<T, NbtCompound> elementSerializer, T defaultElement) {
+      this(fallbackPalette, idList, elementDeserializer, elementSerializer, defaultElement, (NbtList)null, (long[])null);
+   }
+
+   /**
+    * Creates a container and reads its contents from NBT, as {@link #read} does,
+    * without allocating an empty storage first.
+    */
+   public PalettedContainer(Palette<T> fallbackPalette, IdList<T> idList, Function<NbtCompound, T> elementDeserializer, Function<T, NbtCompound> elementSerializer, T defaultElement, @Nullable NbtList paletteNbt, @Nullable long[] data) {
       this.fallbackPalette = fallbackPalette;
       this.idList = idList;
       this.elementDeserializer = elementDeserializer;
       this.elementSerializer = elementSerializer;
       this.defaultValue = defaultElement;
-      this.setPaletteSize(4);
+      if (paletteNbt != null && data != null) {
+         this.read(paletteNbt, data);
+      } else {
+         this.setPaletteSize(0);
+      }
+
    }
 
    private static int toIndex(int x, int y, int z) {
@@ -62,9 +97,19 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
    }
 
    private void setPaletteSize(int size) {
-      if (size != this.paletteSize) {
+      this.setPaletteSize(size, (long[])null);
+   }
+
+   /**
+    * Changes the palette size, using the given array as the new storage if it
+    * has the right length for a palette that is not the fallback palette.
+    */
+   private void setPaletteSize(int size, @Nullable long[] storage) {
+      if (size != this.paletteSize || this.palette == null) {
          this.paletteSize = size;
-         if (this.paletteSize <= 4) {
+         if (this.paletteSize == 0) {
+            this.palette = new SingularPalette(this.idList, this, this.elementDeserializer);
+         } else if (this.paletteSize <= 4) {
             this.paletteSize = 4;
             this.palette = new ArrayPalette(this.idList, this.paletteSize, this, this.elementDeserializer);
          } else if (this.paletteSize < 9) {
@@ -75,7 +120,12 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
          }
 
          this.palette.getIndex(this.defaultValue);
-         this.data = new PackedIntegerArray(this.paletteSize, 4096);
+         if (this.paletteSize == 0) {
+            this.data = null;
+         } else {
+            int i = 64 / this.paletteSize;
+            this.data = new PackedIntegerArray(this.paletteSize, 4096, storage != null && this.palette != this.fallbackPalette && storage.length == (4096 + i - 1) / i ? storage : null);
+         }
       }
    }
 
@@ -84,8 +134,8 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
       Palette<T> palette = this.palette;
       this.setPaletteSize(i);
 
-      for(int j = 0; j < packedIntegerArray.getSize(); ++j) {
-         T object2 = palette.getByIndex(packedIntegerArray.get(j));
+      for(int j = 0; j < 4096; ++j) {
+         T object2 = palette.getByIndex(packedIntegerArray == null ? 0 : packedIntegerArray.get(j));
          if (object2 != null) {
             this.set(j, object2);
          }
@@ -113,7 +163,7 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
 
    private T setAndGetOldValue(int index, T value) {
       int i = this.palette.getIndex(value);
-      int j = this.data.setAndGetOldValue(index, i);
+      int j = this.data == null ? 0 : this.data.setAndGetOldValue(index, i);
       T object = this.palette.getByIndex(j);
       return object == null ? this.defaultValue : object;
    }
@@ -130,7 +180,10 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
 
    private void set(int index, T object) {
       int i = this.palette.getIndex(object);
-      this.data.set(index, i);
+      if (this.data != null) {
+         this.data.set(index, i);
+      }
+
    }
 
    public T get(int x, int y, int z) {
@@ -138,7 +191,7 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
    }
 
    protected T get(int index) {
-      T object = this.palette.getByIndex(this.data.get(index));
+      T object = this.palette.getByIndex(this.data == null ? 0 : this.data.get(index));
       return object == null ? this.defaultValue : object;
    }
 
@@ -161,9 +214,15 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
    public void toPacket(PacketByteBuf buf) {
       try {
          this.lock();
-         buf.writeByte(this.paletteSize);
-         this.palette.toPacket(buf);
-         buf.writeLongArray(this.data.getStorage());
+         if (this.data == null) {
+            buf.writeByte(4);
+            this.palette.toPacket(buf);
+            buf.writeLongArray(EMPTY_PACKET_STORAGE);
+         } else {
+            buf.writeByte(this.paletteSize);
+            this.palette.toPacket(buf);
+            buf.writeLongArray(this.data.getStorage());
+         }
       } finally {
          this.unlock();
       }
@@ -174,27 +233,38 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
       try {
          this.lock();
          int i = Math.max(4, MathHelper.log2DeBruijn(paletteNbt.size()));
+         int j = data.length * 64 / 4096;
+         int k = paletteNbt.size() == 1 ? 0 : getUniformIndex(j, data);
+         if (k >= 0 && k < paletteNbt.size()) {
+            NbtList nbtList = new NbtList();
+            nbtList.add(paletteNbt.getCompound(k));
+            this.setPaletteSize(0);
+            this.palette.readNbt(nbtList);
+            return;
+         }
+
          if (i != this.paletteSize) {
-            this.setPaletteSize(i);
+            this.setPaletteSize(i, j == i ? data : null);
          }
 
          this.palette.readNbt(paletteNbt);
-         int j = data.length * 64 / 4096;
          if (this.palette == this.fallbackPalette) {
             Palette<T> palette = new BiMapPalette(this.idList, i, this.noOpPaletteResizeHandler, this.elementDeserializer, this.elementSerializer);
             palette.readNbt(paletteNbt);
             PackedIntegerArray packedIntegerArray = new PackedIntegerArray(i, 4096, data);
 
-            for(int k = 0; k < 4096; ++k) {
-               this.data.set(k, this.fallbackPalette.getIndex(palette.getByIndex(packedIntegerArray.get(k))));
+            for(int l = 0; l < 4096; ++l) {
+               this.data.set(l, this.fallbackPalette.getIndex(palette.getByIndex(packedIntegerArray.get(l))));
             }
          } else if (j == this.paletteSize) {
-            System.arraycopy(data, 0, this.data.getStorage(), 0, data.length);
+            if (this.data.getStorage() != data) {
+               System.arraycopy(data, 0, this.data.getStorage(), 0, data.length);
+            }
          } else {
             PackedIntegerArray packedIntegerArray2 = new PackedIntegerArray(j, 4096, data);
 
-            for(int l = 0; l < 4096; ++l) {
-               this.data.set(l, packedIntegerArray2.get(l));
+            for(int m = 0; m < 4096; ++m) {
+               this.data.set(m, packedIntegerArray2.get(m));
             }
          }
       } finally {
@@ -203,15 +273,133 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
 
    }
 
+   /**
+    * {@return the index every element of the data refers to, or {@code -1} if
+    * they refer to different palette entries}
+    */
+   private static int getUniformIndex(int elementBits, long[] data) {
+      if (elementBits < 1 || elementBits > 32) {
+         return -1;
+      } else {
+         PackedIntegerArray packedIntegerArray = new PackedIntegerArray(elementBits, 4096, data);
+         int i = packedIntegerArray.get(0);
+
+         for(int j = 1; j < 4096; ++j) {
+            if (packedIntegerArray.get(j) != i) {
+               return -1;
+            }
+         }
+
+         return i;
+      }
+   }
+
    public void write(NbtCompound nbt, String paletteKey, String dataKey) {
+      this.snapshot().write(nbt, paletteKey, dataKey);
+   }
+
+   /**
+    * Copies the current contents of this container so that they can be
+    * written to NBT later, from any thread.
+    */
+   public PalettedContainer.Snapshot<T> snapshot() {
       try {
          this.lock();
-         BiMapPalette<T> biMapPalette = new BiMapPalette(this.idList, this.paletteSize, this.noOpPaletteResizeHandler, this.elementDeserializer, this.elementSerializer);
-         T object = this.defaultValue;
-         int i = biMapPalette.getIndex(this.defaultValue);
+         Object[] objects = null;
+         if (this.palette != this.fallbackPalette) {
+            objects = new Object[1 << this.paletteSize];
+
+            for(int i = 0; i < objects.length; ++i) {
+               objects[i] = this.palette.getByIndex(i);
+            }
+         }
+
+         return new PalettedContainer.Snapshot(this.idList, this.elementDeserializer, this.elementSerializer, this.defaultValue, objects, this.data == null ? null : new PackedIntegerArray(this.paletteSize, 4096, (long[])this.data.getStorage().clone()));
+      } finally {
+         this.unlock();
+      }
+   }
+
+   public int getPacketSize() {
+      int i = this.data == null ? EMPTY_PACKET_STORAGE.length : this.data.getStorage().length;
+      return 1 + this.palette.getPacketSize() + PacketByteBuf.getVarIntLength(i) + i * 8;
+   }
+
+   public boolean hasAny(Predicate<T> predicate) {
+      return this.palette.accepts(predicate);
+   }
+
+   public void count(PalettedContainer.CountConsumer<T> consumer) {
+      if (this.data == null) {
+         consumer.accept(this.palette.getByIndex(0), 4096);
+      } else {
+         Int2IntMap int2IntMap = new Int2IntOpenHashMap();
+         this.data.forEach((i) -> {
+            int2IntMap.put(i, int2IntMap.get(i) + 1);
+         });
+         int2IntMap.int2IntEntrySet().forEach((entry) -> {
+            consumer.accept(this.palette.getByIndex(entry.getIntKey()), entry.getIntValue());
+         });
+      }
+   }
+
+   @FunctionalInterface
+   public interface CountConsumer<T> {
+      void accept(T object, int count);
+   }
+
+   /**
+    * An immutable copy of the contents of a container, taken by {@link #snapshot()}.
+    */
+   public static class Snapshot<T> {
+      private final IdList<T> idList;
+      private final Function<NbtCompound, T> elementDeserializer;
+      private final Function<T, NbtCompound> elementSerializer;
+      private final T defaultValue;
+      /**
+       * The entries of the palette by index, or {@code null} if the data holds
+       * raw ids of the id list.
+       */
+      @Nullable
+      private final Object[] palette;
+      /**
+       * The indices of the elements, or {@code null} if they all have index 0.
+       */
+      @Nullable
+      private final PackedIntegerArray data;
+
+      Snapshot(IdList<T> idList, Function<NbtCompound, T> elementDeserializer, Function<T, NbtCompound> elementSerializer, T defaultValue, @Nullable Object[] palette, @Nullable PackedIntegerArray data) {
+         this.idList = idList;
+         this.elementDeserializer = elementDeserializer;
+         this.elementSerializer = elementSerializer;
+         this.defaultValue = defaultValue;
+         this.palette = palette;
+         this.data = data;
+      }
+
+      private T get(int index) {
+         int i = this.data == null ? 0 : this.data.get(index);
+         T object = this.palette == null ? this.idList.get(i) : (i < this.palette.length ? (T)this.palette[i] : null);
+         return object == null ? this.defaultValue : object;
+      }
+
+      public void write(NbtCompound nbt, String paletteKey, String dataKey) {
+         if (this.data == null) {
+            NbtList nbtList = new NbtList();
+            nbtList.add((NbtElement)this.elementSerializer.apply(this.get(0)));
+            nbt.put(paletteKey, nbtList);
+            nbt.putLongArray(dataKey, new long[256]);
+            return;
+         }
+
+         BiMapPalette<T> biMapPalette = new BiMapPalette(this.idList, this.data.getElementBits(), (newSize, added) -> {
+            return 0;
+         }, this.elementDeserializer, this.elementSerializer);
+         T object = this.get(0);
+         int i = biMapPalette.getIndex(object);
          int[] is = new int[4096];
 
-         for(int j = 0; j < 4096; ++j) {
+         for(int j = 1; j < 4096; ++j) {
             T object2 = this.get(j);
             if (object2 != object) {
                object = object2;
@@ -224,6 +412,11 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
          NbtList nbtList = new NbtList();
          biMapPalette.writeNbt(nbtList);
          nbt.put(paletteKey, nbtList);
+         if (nbtList.size() == 1) {
+            nbt.putLongArray(dataKey, new long[256]);
+            return;
+         }
+
          int k = Math.max(4, MathHelper.log2DeBruijn(nbtList.size()));
          PackedIntegerArray packedIntegerArray = new PackedIntegerArray(k, 4096);
 
@@ -232,31 +425,6 @@ public class PalettedContainer<T> implements PaletteResizeListener<T> {
          }
 
          nbt.putLongArray(dataKey, packedIntegerArray.getStorage());
-      } finally {
-         this.unlock();
       }
    }
-
-   public int getPacketSize() {
-      return 1 + this.palette.getPacketSize() + PacketByteBuf.getVarIntLength(this.data.getSize()) + this.data.getStorage().length * 8;
-   }
-
-   public boolean hasAny(Predicate<T> predicate) {
-      return this.palette.accepts(predicate);
-   }
-
-   public void count(PalettedContainer.CountConsumer<T> consumer) {
-      Int2IntMap int2IntMap = new Int2IntOpenHashMap();
-      this.data.forEach((i) -> {
-         int2IntMap.put(i, int2IntMap.get(i) + 1);
-      });
-      int2IntMap.int2IntEntrySet().forEach((entry) -> {
-         consumer.accept(this.palette.getByIndex(entry.getIntKey()), entry.getIntValue());
-      });
-   }
-
-   @FunctionalInterface
-   public interface CountConsumer<T> {
-      void accept(T object, int count);
-   }
 }
@@ -0,0 +1,80 @@
+package net.minecraft.world.chunk;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.collection.IdList;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A palette holding a single entry, used by containers whose every element is
+ * the same and which therefore need no data storage.
+ */
+public class SingularPalette<T> implements Palette<T> {
+   private final IdList<T> idList;
+   private final PaletteResizeListener<T> resizeListener;
+   private final Function<NbtCompound, T> valueDeserializer;
+   @Nullable
+   private T entry;
+
+   public SingularPalette(IdList<T> idList, PaletteResizeListener<T> resizeListener, Function<NbtCompound, T> valueDeserializer) {
+      this.idList = idList;
+      this.resizeListener = resizeListener;
+      this.valueDeserializer = valueDeserializer;
+   }
+
+   public int getIndex(T object) {
+      if (this.entry == null) {
+         this.entry = object;
+         return 0;
+      } else {
+         return this.entry == object ? 0 : this.resizeListener.onResize(1, object);
+      }
+   }
+
+   public boolean accepts(Predicate<T> predicate) {
+      return this.entry != null && predicate.test(this.entry);
+   }
+
+   @Nullable
+   public T getByIndex(int index) {
+      return index == 0 ? this.entry : null;
+   }
+
+   public void fromPacket(PacketByteBuf buf) {
+      int i = buf.readVarInt();
+      this.entry = i > 0 ? this.idList.get(buf.readVarInt()) : null;
+
+      for(int j = 1; j < i; ++j) {
+         buf.readVarInt();
+      }
+
+   }
+
+   public void toPacket(PacketByteBuf buf) {
+      buf.writeVarInt(this.getIndexBits());
+      if (this.entry != null) {
+         buf.writeVarInt(this.idList.getRawId(this.entry));
+      }
+
+   }
+
+   public int getPacketSize() {
+      int i = PacketByteBuf.getVarIntLength(this.getIndexBits());
+      if (this.entry != null) {
+         i += PacketByteBuf.getVarIntLength(this.idList.getRawId(this.entry));
+      }
+
+      return i;
+   }
+
+   public int getIndexBits() {
+      return this.entry == null ? 0 : 1;
+   }
+
+   public void readNbt(NbtList nbt) {
+      this.entry = nbt.isEmpty() ? null : this.valueDeserializer.apply(nbt.getCompound(0));
+   }
+}
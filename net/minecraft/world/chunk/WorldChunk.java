@@ -98,6 +98,11 @@ public class WorldChunk implements Chunk {
    private TickScheduler<Block> blockTickScheduler;
    private TickScheduler<Fluid> fluidTickScheduler;
    private volatile boolean shouldSave;
+   /**
+    * Incremented whenever the blocks, block entities or light of this chunk
+    * change, so that data derived from the chunk can tell whether it is stale.
+    */
+   private volatile int modificationCount;
    private long inhabitedTime;
    @Nullable
    private Supplier<ChunkHolder.LevelType> levelTypeProvider;
@@ -323,6 +328,7 @@ public class WorldChunk implements Chunk {
             }
 
             this.shouldSave = true;
+            ++this.modificationCount;
             return blockState;
          }
       }
@@ -426,6 +432,8 @@ public class WorldChunk implements Chunk {
             blockEntity2.markRemoved();
          }
 
+         ++this.modificationCount;
+
       }
    }
 
@@ -458,6 +466,7 @@ public class WorldChunk implements Chunk {
          if (blockEntity != null) {
             this.removeGameEventListener(blockEntity);
             blockEntity.markRemoved();
+            ++this.modificationCount;
          }
       }
 
@@ -500,6 +509,7 @@ public class WorldChunk implements Chunk {
 
    public void markDirty() {
       this.shouldSave = true;
+      ++this.modificationCount;
    }
 
    public boolean isEmpty() {
@@ -605,6 +615,14 @@ public class WorldChunk implements Chunk {
 
    public void setShouldSave(boolean shouldSave) {
       this.shouldSave = shouldSave;
+      if (shouldSave) {
+         ++this.modificationCount;
+      }
+
+   }
+
+   public int getModificationCount() {
+      return this.modificationCount;
    }
 
    public boolean needsSaving() {
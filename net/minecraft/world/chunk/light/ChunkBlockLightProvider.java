@@ -1,9 +1,13 @@
 package net.minecraft.world.chunk.light;
 
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import java.util.function.LongPredicate;
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.shape.VoxelShape;
 import net.minecraft.util.shape.VoxelShapes;
 import net.minecraft.world.BlockView;
@@ -14,10 +18,34 @@ import org.apache.commons.lang3.mutable.MutableInt;
 
 public final class ChunkBlockLightProvider extends ChunkLightProvider<BlockLightStorage.Data, BlockLightStorage> {
    private static final Direction[] DIRECTIONS = Direction.values();
+   private static volatile boolean queueLightSources;
    private final BlockPos.Mutable mutablePos = new BlockPos.Mutable();
+   private final LongArrayList queuedSources = new LongArrayList();
+   private final ByteArrayList queuedSourceLevels = new ByteArrayList();
+   private final LongArrayList[] queuesByLevel = new LongArrayList[15];
+   private final MutableInt opacity = new MutableInt();
+   private volatile boolean hasQueuedSources;
 
    public ChunkBlockLightProvider(ChunkProvider chunkProvider) {
       super(chunkProvider, LightType.BLOCK, new BlockLightStorage(chunkProvider));
+
+      for(int i = 0; i < this.queuesByLevel.length; ++i) {
+         this.queuesByLevel[i] = new LongArrayList();
+      }
+
+   }
+
+   /**
+    * Sets whether light sources added while the level propagator is idle are
+    * propagated with a breadth-first search over flat per-level queues instead of
+    * through the propagator.
+    * 
+    * <p>Adding a light source can only raise light levels, so the search does not
+    * need the pending update bookkeeping the propagator keeps for removals. It
+    * applies the same propagation rules and produces the same light.
+    */
+   public static void setQueueLightSources(boolean queueLightSources) {
+      ChunkBlockLightProvider.queueLightSources = queueLightSources;
    }
 
    private int getLightSourceLuminance(long blockPos) {
@@ -121,6 +149,143 @@ public final class ChunkBlockLightProvider extends ChunkLightProvider<BlockLight
 
    public void addLightSource(BlockPos pos, int level) {
       ((BlockLightStorage)this.lightStorage).updateAll();
-      this.updateLevel(Long.MAX_VALUE, pos.asLong(), 15 - level, true);
+      if (queueLightSources && !this.hasPendingUpdates()) {
+         this.queuedSources.add(pos.asLong());
+         this.queuedSourceLevels.add((byte)MathHelper.clamp((int)(15 - level), (int)0, (int)15));
+         this.hasQueuedSources = true;
+      } else {
+         this.updateLevel(Long.MAX_VALUE, pos.asLong(), 15 - level, true);
+      }
+
+   }
+
+   /**
+    * Hands the queued light sources to the level propagator before anything else is
+    * scheduled with it, so that the search never runs next to pending removals.
+    */
+   protected void updateLevel(long sourceId, long id, int level, boolean decrease) {
+      this.flushQueuedSources();
+      super.updateLevel(sourceId, id, level, decrease);
+   }
+
+   private void flushQueuedSources() {
+      if (this.hasQueuedSources) {
+         for(int i = 0; i < this.queuedSources.size(); ++i) {
+            super.updateLevel(Long.MAX_VALUE, this.queuedSources.getLong(i), this.queuedSourceLevels.getByte(i), true);
+         }
+
+         this.clearQueuedSources();
+      }
+   }
+
+   private void clearQueuedSources() {
+      this.queuedSources.clear();
+      this.queuedSourceLevels.clear();
+      this.hasQueuedSources = false;
+   }
+
+   protected void removePendingUpdate(long id) {
+      this.removeQueuedSourcesIf((l) -> {
+         return l == id;
+      });
+      super.removePendingUpdate(id);
+   }
+
+   public void removePendingUpdateIf(LongPredicate predicate) {
+      this.removeQueuedSourcesIf(predicate);
+      super.removePendingUpdateIf(predicate);
+   }
+
+   private void removeQueuedSourcesIf(LongPredicate predicate) {
+      if (this.hasQueuedSources) {
+         int i = 0;
+
+         for(int j = 0; j < this.queuedSources.size(); ++j) {
+            long l = this.queuedSources.getLong(j);
+            if (!predicate.test(l)) {
+               this.queuedSources.set(i, l);
+               this.queuedSourceLevels.set(i, this.queuedSourceLevels.getByte(j));
+               ++i;
+            }
+         }
+
+         this.queuedSources.size(i);
+         this.queuedSourceLevels.size(i);
+         this.hasQueuedSources = i > 0;
+      }
+   }
+
+   protected boolean hasQueuedUpdates() {
+      return this.hasQueuedSources;
+   }
+
+   /**
+    * Propagates the queued light sources, lowest level (brightest light) first. A
+    * position is written as soon as a lower level reaches it and is expanded once,
+    * from the queue of the level it ends up with.
+    */
+   protected int applyQueuedUpdates(int maxSteps) {
+      int i = maxSteps;
+
+      for(int j = 0; j < this.queuedSources.size(); ++j) {
+         long l = this.queuedSources.getLong(j);
+         int k = this.queuedSourceLevels.getByte(j);
+         if (!((BlockLightStorage)this.lightStorage).hasSection(ChunkSectionPos.fromBlockPos(l))) {
+            super.updateLevel(Long.MAX_VALUE, l, k, true);
+         } else if (k < this.getLevel(l)) {
+            this.setLevel(l, k);
+            this.queuesByLevel[k].add(l);
+         }
+      }
+
+      this.clearQueuedSources();
+
+      for(int m = 0; m < this.queuesByLevel.length; ++m) {
+         LongArrayList longArrayList = this.queuesByLevel[m];
+
+         for(int n = 0; n < longArrayList.size(); ++n) {
+            long o = longArrayList.getLong(n);
+            if (this.getLevel(o) == m) {
+               --i;
+               long p = ChunkSectionPos.fromBlockPos(o);
+               BlockState blockState = this.getStateForLighting(o, (MutableInt)null);
+               Direction[] var14 = DIRECTIONS;
+               int var15 = var14.length;
+
+               for(int var16 = 0; var16 < var15; ++var16) {
+                  Direction direction = var14[var16];
+                  long q = BlockPos.offset(o, direction);
+                  long r = ChunkSectionPos.fromBlockPos(q);
+                  if (p == r || ((BlockLightStorage)this.lightStorage).hasSection(r)) {
+                     int s = this.getPropagatedLevel(o, blockState, q, direction, m);
+                     if (s < this.getLevel(q)) {
+                        this.setLevel(q, s);
+                        this.queuesByLevel[s].add(q);
+                     }
+                  }
+               }
+            }
+         }
+
+         longArrayList.clear();
+      }
+
+      return Math.max(0, i);
+   }
+
+   /**
+    * Same as {@link #getPropagatedLevel(long, long, int)} between two adjacent positions,
+    * with the state of the source already looked up.
+    */
+   private int getPropagatedLevel(long sourceId, BlockState sourceState, long targetId, Direction direction, int level) {
+      BlockState blockState = this.getStateForLighting(targetId, this.opacity);
+      int i = this.opacity.intValue();
+      if (i >= 15) {
+         return 15;
+      } else {
+         VoxelShape voxelShape = this.getOpaqueShape(sourceState, sourceId, direction);
+         VoxelShape voxelShape2 = this.getOpaqueShape(blockState, targetId, direction.getOpposite());
+         return VoxelShapes.unionCoversFullCube(voxelShape, voxelShape2) ? 15 : Math.min(15, level + Math.max(1, i));
+      }
    }
 }
@@ -143,7 +143,25 @@ public abstract class ChunkLightProvider<M extends ChunkToNibbleArrayMap<M>, S e
    }
 
    public boolean hasUpdates() {
-      return this.hasPendingUpdates() || this.lightStorage.hasPendingUpdates() || this.lightStorage.hasLightUpdates();
+      return this.hasPendingUpdates() || this.hasQueuedUpdates() || this.lightStorage.hasPendingUpdates() || this.lightStorage.hasLightUpdates();
+   }
+
+   /**
+    * {@return whether there are updates queued outside of the level propagator}
+    */
+   protected boolean hasQueuedUpdates() {
+      return false;
+   }
+
+   /**
+    * Applies the updates queued outside of the level propagator. Called after the
+    * light storage is updated and before the pending updates of the propagator are
+    * applied.
+    * 
+    * @return the remaining number of steps
+    */
+   protected int applyQueuedUpdates(int maxSteps) {
+      return maxSteps;
    }
 
    public int doLightUpdates(int i, boolean bl, boolean bl2) {
@@ -159,6 +177,11 @@ public abstract class ChunkLightProvider<M extends ChunkToNibbleArrayMap<M>, S e
       }
 
       this.field_15794 = true;
+      if (this.hasQueuedUpdates()) {
+         i = this.applyQueuedUpdates(i);
+         this.clearChunkCache();
+      }
+
       if (this.hasPendingUpdates()) {
          i = this.applyPendingUpdates(i);
          this.clearChunkCache();
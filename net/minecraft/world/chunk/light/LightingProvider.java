@@ -1,5 +1,7 @@
 package net.minecraft.world.chunk.light;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.ChunkSectionPos;
@@ -64,6 +66,35 @@ public class LightingProvider implements LightingView {
       }
    }
 
+   /**
+    * Applies all pending updates, updating block light on the given executor while sky
+    * light is updated on the calling thread. Block light and sky light are stored and
+    * propagated independently; the two only share read access to the chunks.
+    */
+   protected void doLightUpdates(Executor executor) {
+      if (this.blockLightProvider != null && this.skyLightProvider != null) {
+         CompletableFuture<Void> completableFuture = CompletableFuture.runAsync(() -> {
+            this.blockLightProvider.doLightUpdates(Integer.MAX_VALUE, true, true);
+         }, executor);
+
+         try {
+            this.skyLightProvider.doLightUpdates(Integer.MAX_VALUE, true, true);
+         } finally {
+            completableFuture.join();
+         }
+      } else if (this.blockLightProvider != null) {
+         this.blockLightProvider.doLightUpdates(Integer.MAX_VALUE, true, true);
+      } else if (this.skyLightProvider != null) {
+         this.skyLightProvider.doLightUpdates(Integer.MAX_VALUE, true, true);
+      }
+
+   }
+
+   public int getPendingUpdateCount(LightType lightType) {
+      ChunkLightProvider<?, ?> chunkLightProvider = lightType == LightType.BLOCK ? this.blockLightProvider : this.skyLightProvider;
+      return chunkLightProvider == null ? 0 : chunkLightProvider.getPendingUpdateCount();
+   }
+
    public void setSectionStatus(ChunkSectionPos pos, boolean notReady) {
       if (this.blockLightProvider != null) {
          this.blockLightProvider.setSectionStatus(pos, notReady);
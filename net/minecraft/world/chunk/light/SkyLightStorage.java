@@ -5,7 +5,6 @@ import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
-import java.util.Arrays;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.Direction;
@@ -156,7 +155,13 @@ public class SkyLightStorage extends LightStorage<SkyLightStorage.Data> {
                l = ChunkSectionPos.offset(l, Direction.UP);
             }
 
-            return new ChunkNibbleArray((new ColumnChunkNibbleArray(chunkNibbleArray2, 0)).asByteArray());
+            int j = chunkNibbleArray2.get(0, 0, 0);
+            if (chunkNibbleArray2.isUniform(j)) {
+               return ChunkNibbleArray.uniform(j);
+            } else {
+               ColumnChunkNibbleArray columnChunkNibbleArray = new ColumnChunkNibbleArray(chunkNibbleArray2, 0);
+               return columnChunkNibbleArray.isUniform(j) ? ChunkNibbleArray.uniform(j) : new ChunkNibbleArray(columnChunkNibbleArray.asByteArray());
+            }
          } else {
             return new ChunkNibbleArray();
          }
@@ -196,7 +201,7 @@ public class SkyLightStorage extends LightStorage<SkyLightStorage.Data> {
                         ((SkyLightStorage.Data)this.storage).replaceWithCopy(l);
                      }
 
-                     Arrays.fill(this.getLightSection(l, true).asByteArray(), (byte)-1);
+                     this.getLightSection(l, true).fill(15);
                      j = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackX(l));
                      k = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackY(l));
                      int m = ChunkSectionPos.getBlockCoord(ChunkSectionPos.unpackZ(l));
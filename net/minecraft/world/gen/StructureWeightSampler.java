@@ -98,6 +98,17 @@ public class StructureWeightSampler {
       this.junctionIterator = this.junctions.iterator();
    }
 
+   /**
+    * Creates a sampler over the same pieces and junctions as {@code sampler} with
+    * its own iteration state, so that both can be used from different threads.
+    */
+   public StructureWeightSampler(StructureWeightSampler sampler) {
+      this.junctions = sampler.junctions;
+      this.pieces = sampler.pieces;
+      this.pieceIterator = this.pieces.iterator();
+      this.junctionIterator = this.junctions.iterator();
+   }
+
    /**
     * Gets the weight of the structures near the given position.
     */
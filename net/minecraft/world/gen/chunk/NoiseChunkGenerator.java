@@ -5,6 +5,7 @@ import com.google.common.collect.Sets;
 import com.mojang.datafixers.kinds.App;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -70,11 +71,15 @@ public final class NoiseChunkGenerator extends ChunkGenerator {
    });
    private static final BlockState AIR;
    private static final BlockState[] EMPTY;
+   private static final int PARALLEL_NOISE_BAND_HEIGHT = 64;
+   private static final int COLUMN_CACHE_CAPACITY = 8192;
+   private static volatile boolean parallelNoise;
    private final int verticalNoiseResolution;
    private final int horizontalNoiseResolution;
    final int noiseSizeX;
    final int noiseSizeY;
    final int noiseSizeZ;
+   private final int noiseMinY;
    private final NoiseSampler surfaceDepthNoise;
    private final DoublePerlinNoiseSampler edgeDensityNoise;
    private final DoublePerlinNoiseSampler fluidLevelNoise;
@@ -88,6 +93,13 @@ public final class NoiseChunkGenerator extends ChunkGenerator {
    private final BlockSource deepslateSource;
    final OreVeinGenerator oreVeinGenerator;
    final NoodleCavesGenerator noodleCavesGenerator;
+   /**
+    * The most recently sampled noise columns over the full height of the generator,
+    * keyed by their packed horizontal noise coordinates. Columns on chunk borders are
+    * sampled by every neighboring chunk, and structures sample the same columns again
+    * through {@link #getHeight} and {@link #getColumnSample}.
+    */
+   private final Long2ObjectLinkedOpenHashMap<double[]> columnCache = new Long2ObjectLinkedOpenHashMap(COLUMN_CACHE_CAPACITY);
 
    public NoiseChunkGenerator(BiomeSource biomeSource, long seed, Supplier<ChunkGeneratorSettings> settings) {
       this(biomeSource, biomeSource, seed, settings);
@@ -107,6 +119,7 @@ public final class NoiseChunkGenerator extends ChunkGenerator {
       this.noiseSizeX = 16 / this.horizontalNoiseResolution;
       this.noiseSizeY = generationShapeConfig.getHeight() / this.verticalNoiseResolution;
       this.noiseSizeZ = 16 / this.horizontalNoiseResolution;
+      this.noiseMinY = MathHelper.floorDiv(generationShapeConfig.getMinimumY(), this.verticalNoiseResolution);
       ChunkRandom chunkRandom = new ChunkRandom(seed);
       InterpolatedNoiseSampler interpolatedNoiseSampler = new InterpolatedNoiseSampler(chunkRandom);
       this.surfaceDepthNoise = (NoiseSampler)(generationShapeConfig.hasSimplexSurfaceNoise() ? new OctaveSimplexNoiseSampler(chunkRandom, IntStream.rangeClosed(-3, 0)) : new OctavePerlinNoiseSampler(chunkRandom, IntStream.rangeClosed(-3, 0)));
@@ -137,6 +150,14 @@ public final class NoiseChunkGenerator extends ChunkGenerator {
       this.noodleCavesGenerator = new NoodleCavesGenerator(seed);
    }
 
+   /**
+    * Sets whether the noise of a single chunk is filled by several threads at once,
+    * one band of sections each, which lowers the latency of generating a chunk.
+    */
+   public static void setParallelNoise(boolean parallelNoise) {
+      NoiseChunkGenerator.parallelNoise = parallelNoise;
+   }
+
    private boolean hasAquifers() {
       return ((ChunkGeneratorSettings)this.settings.get()).hasAquifers();
    }
@@ -159,9 +180,45 @@ public final class NoiseChunkGenerator extends ChunkGenerator {
       return ds;
    }
 
+   /**
+    * Samples the noise column at the given noise coordinates, reusing a cached column
+    * if there is one. Every y level of a column is sampled independently, so a part of
+    * a cached column is identical to sampling that part directly.
+    *
+    * <p>Only requests spanning the full height of the generator add to the cache; a
+    * chunk filled in bands would otherwise sample every column in full once per band.
+    */
    private void sampleNoiseColumn(double[] buffer, int x, int z, int minY, int noiseSizeY) {
       GenerationShapeConfig generationShapeConfig = ((ChunkGeneratorSettings)this.settings.get()).getGenerationShapeConfig();
-      this.noiseColumnSampler.sampleNoiseColumn(buffer, x, z, generationShapeConfig, this.getSeaLevel(), minY, noiseSizeY);
+      if (minY >= this.noiseMinY && minY + noiseSizeY <= this.noiseMinY + this.noiseSizeY) {
+         long l = ChunkPos.toLong(x, z);
+         double[] ds;
+         synchronized(this.columnCache) {
+            ds = (double[])this.columnCache.getAndMoveToLast(l);
+         }
+
+         if (ds == null) {
+            if (minY != this.noiseMinY || noiseSizeY != this.noiseSizeY) {
+               this.noiseColumnSampler.sampleNoiseColumn(buffer, x, z, generationShapeConfig, this.getSeaLevel(), minY, noiseSizeY);
+               return;
+            }
+
+            ds = new double[this.noiseSizeY + 1];
+            this.noiseColumnSampler.sampleNoiseColumn(ds, x, z, generationShapeConfig, this.getSeaLevel(), this.noiseMinY, this.noiseSizeY);
+            synchronized(this.columnCache) {
+               this.columnCache.putAndMoveToLast(l, ds);
+               if (this.columnCache.size() > COLUMN_CACHE_CAPACITY) {
+                  for(int i = 0; i < COLUMN_CACHE_CAPACITY / 16; ++i) {
+                     this.columnCache.removeFirst();
+                  }
+               }
+            }
+         }
+
+         System.arraycopy(ds, minY - this.noiseMinY, buffer, 0, noiseSizeY + 1);
+      } else {
+         this.noiseColumnSampler.sampleNoiseColumn(buffer, x, z, generationShapeConfig, this.getSeaLevel(), minY, noiseSizeY);
+      }
    }
 
    public int getHeight(int x, int z, Heightmap.Type heightmap, HeightLimitView world) {
@@ -369,12 +426,72 @@ public final class NoiseChunkGenerator extends ChunkGenerator {
    }
 
    private Chunk populateNoise(StructureAccessor accessor, Chunk chunk, int startY, int noiseSizeY) {
+      StructureWeightSampler structureWeightSampler = new StructureWeightSampler(accessor, chunk);
+      if (parallelNoise) {
+         List<NoiseChunkGenerator.NoiseBand> list = this.splitNoiseBands(startY, noiseSizeY);
+         if (list.size() > 1) {
+            return this.populateNoiseBands(structureWeightSampler, chunk, list);
+         }
+      }
+
+      return this.populateNoise(structureWeightSampler, chunk, startY, noiseSizeY, (NoiseChunkGenerator.NoiseBand)null);
+   }
+
+   /**
+    * Splits the noise cells of a chunk into bands of at least {@value #PARALLEL_NOISE_BAND_HEIGHT}
+    * blocks, from the bottom up. Bands start on chunk section boundaries, so no two bands
+    * write to the same section.
+    */
+   private List<NoiseChunkGenerator.NoiseBand> splitNoiseBands(int startY, int noiseSizeY) {
+      List<NoiseChunkGenerator.NoiseBand> list = Lists.newArrayList();
+      int i = Math.max(1, PARALLEL_NOISE_BAND_HEIGHT / this.verticalNoiseResolution);
+      int j = 0;
+
+      for(int k = i; k < noiseSizeY; ++k) {
+         if (k - j >= i && ((startY + k) * this.verticalNoiseResolution & 15) == 0) {
+            list.add(new NoiseChunkGenerator.NoiseBand(startY + j, k - j));
+            j = k;
+         }
+      }
+
+      list.add(new NoiseChunkGenerator.NoiseBand(startY + j, noiseSizeY - j));
+      return list;
+   }
+
+   private Chunk populateNoiseBands(StructureWeightSampler structureWeightSampler, Chunk chunk, List<NoiseChunkGenerator.NoiseBand> bands) {
       Heightmap heightmap = chunk.getHeightmap(Heightmap.Type.OCEAN_FLOOR_WG);
       Heightmap heightmap2 = chunk.getHeightmap(Heightmap.Type.WORLD_SURFACE_WG);
+      List<CompletableFuture<Void>> list = Lists.newArrayListWithCapacity(bands.size() - 1);
+
+      for(int i = 1; i < bands.size(); ++i) {
+         NoiseChunkGenerator.NoiseBand noiseBand = (NoiseChunkGenerator.NoiseBand)bands.get(i);
+         StructureWeightSampler structureWeightSampler2 = new StructureWeightSampler(structureWeightSampler);
+         list.add(CompletableFuture.runAsync(() -> {
+            this.populateNoise(structureWeightSampler2, chunk, noiseBand.startY, noiseBand.noiseSizeY, noiseBand);
+         }, Util.getMainWorkerExecutor()));
+      }
+
+      NoiseChunkGenerator.NoiseBand noiseBand2 = (NoiseChunkGenerator.NoiseBand)bands.get(0);
+
+      try {
+         this.populateNoise(structureWeightSampler, chunk, noiseBand2.startY, noiseBand2.noiseSizeY, noiseBand2);
+      } finally {
+         CompletableFuture.allOf((CompletableFuture[])list.toArray(new CompletableFuture[0])).join();
+      }
+
+      for(int j = bands.size() - 1; j >= 0; --j) {
+         ((NoiseChunkGenerator.NoiseBand)bands.get(j)).apply(chunk, heightmap, heightmap2);
+      }
+
+      return chunk;
+   }
+
+   private Chunk populateNoise(StructureWeightSampler structureWeightSampler, Chunk chunk, int startY, int noiseSizeY, @Nullable NoiseChunkGenerator.NoiseBand band) {
+      Heightmap heightmap = band == null ? chunk.getHeightmap(Heightmap.Type.OCEAN_FLOOR_WG) : null;
+      Heightmap heightmap2 = band == null ? chunk.getHeightmap(Heightmap.Type.WORLD_SURFACE_WG) : null;
       ChunkPos chunkPos = chunk.getPos();
       int i = chunkPos.getStartX();
       int j = chunkPos.getStartZ();
-      StructureWeightSampler structureWeightSampler = new StructureWeightSampler(accessor, chunk);
       AquiferSampler aquiferSampler = this.createBlockSampler(startY, noiseSizeY, chunkPos);
       NoiseInterpolator noiseInterpolator = new NoiseInterpolator(this.noiseSizeX, noiseSizeY, this.noiseSizeZ, chunkPos, startY, this::sampleNoiseColumn);
       List<NoiseInterpolator> list = Lists.newArrayList((Object[])(noiseInterpolator));
@@ -425,7 +542,10 @@ public final class NoiseChunkGenerator extends ChunkGenerator {
                         double f = (double)x / (double)this.horizontalNoiseResolution;
                         double g = noiseInterpolator.sampleNoise(f);
                         BlockState blockState = this.getBlockState(structureWeightSampler, aquiferSampler, (BlockSource)doubleFunction.apply(f), (WeightSampler)doubleFunction2.apply(f), v, r, y, g);
-                        if (blockState != AIR) {
+                        if (blockState != AIR && band != null) {
+                           chunkSection.setBlockState(w, s, z, blockState, false);
+                           band.track(v, r, y, blockState, aquiferSampler.needsFluidTick());
+                        } else if (blockState != AIR) {
                            if (blockState.getLuminance() != 0 && chunk instanceof ProtoChunk) {
                               mutable.set(v, r, y);
                               ((ProtoChunk)chunk).addLightSource(mutable);
@@ -545,6 +665,89 @@ public final class NoiseChunkGenerator extends ChunkGenerator {
       EMPTY = new BlockState[0];
    }
 
+   /**
+    * A vertical range of noise cells filled on its own thread.
+    *
+    * <p>Bands write only to their own sections. Updates to the heightmaps, the light
+    * sources and the fluid ticks of the chunk are recorded while filling and applied
+    * afterwards, top band first, which gives the same result as filling the whole
+    * chunk from the top down.
+    */
+   static class NoiseBand {
+      private static final Predicate<BlockState> OCEAN_FLOOR_PREDICATE = Heightmap.Type.OCEAN_FLOOR_WG.getBlockPredicate();
+      private static final Predicate<BlockState> WORLD_SURFACE_PREDICATE = Heightmap.Type.WORLD_SURFACE_WG.getBlockPredicate();
+      final int startY;
+      final int noiseSizeY;
+      private final BlockState[] oceanFloorStates = new BlockState[256];
+      private final int[] oceanFloorHeights = new int[256];
+      private final BlockState[] worldSurfaceStates = new BlockState[256];
+      private final int[] worldSurfaceHeights = new int[256];
+      private final List<BlockPos> lightSources = Lists.newArrayList();
+      private final List<BlockPos> fluidTicks = Lists.newArrayList();
+
+      NoiseBand(int startY, int noiseSizeY) {
+         this.startY = startY;
+         this.noiseSizeY = noiseSizeY;
+      }
+
+      /**
+       * Records a block placed by this band. Blocks of a column have to be tracked
+       * from the top down.
+       */
+      void track(int x, int y, int z, BlockState state, boolean fluidTick) {
+         int i = x & 15 | (z & 15) << 4;
+         if (this.oceanFloorStates[i] == null && OCEAN_FLOOR_PREDICATE.test(state)) {
+            this.oceanFloorStates[i] = state;
+            this.oceanFloorHeights[i] = y;
+         }
+
+         if (this.worldSurfaceStates[i] == null && WORLD_SURFACE_PREDICATE.test(state)) {
+            this.worldSurfaceStates[i] = state;
+            this.worldSurfaceHeights[i] = y;
+         }
+
+         if (state.getLuminance() != 0) {
+            this.lightSources.add(new BlockPos(x, y, z));
+         }
+
+         if (fluidTick && !state.getFluidState().isEmpty()) {
+            this.fluidTicks.add(new BlockPos(x, y, z));
+         }
+
+      }
+
+      void apply(Chunk chunk, Heightmap oceanFloor, Heightmap worldSurface) {
+         for(int i = 0; i < 256; ++i) {
+            if (this.oceanFloorStates[i] != null) {
+               oceanFloor.trackUpdate(i & 15, this.oceanFloorHeights[i], i >> 4, this.oceanFloorStates[i]);
+            }
+
+            if (this.worldSurfaceStates[i] != null) {
+               worldSurface.trackUpdate(i & 15, this.worldSurfaceHeights[i], i >> 4, this.worldSurfaceStates[i]);
+            }
+         }
+
+         Iterator var5;
+         BlockPos blockPos;
+         if (chunk instanceof ProtoChunk) {
+            var5 = this.lightSources.iterator();
+
+            while(var5.hasNext()) {
+               blockPos = (BlockPos)var5.next();
+               ((ProtoChunk)chunk).addLightSource(blockPos);
+            }
+         }
+
+         var5 = this.fluidTicks.iterator();
+
+         while(var5.hasNext()) {
+            blockPos = (BlockPos)var5.next();
+            chunk.getFluidTickScheduler().schedule(blockPos, chunk.getFluidState(blockPos).getFluid(), 0);
+         }
+
+      }
+   }
+
    class NoodleCavesSampler implements WeightSampler {
       private final NoiseInterpolator field_33646;
       private final NoiseInterpolator field_33647;
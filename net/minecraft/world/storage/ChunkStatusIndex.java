@@ -0,0 +1,155 @@
+package net.minecraft.world.storage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import net.minecraft.SharedConstants;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.world.chunk.ChunkStatus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Records the generation status of every chunk of a region file, so that it can
+ * be looked up without reading and decompressing the chunk.
+ *
+ * <p>The index is stored next to the region file as {@code r.<x>.<z>.mcs}. Each
+ * entry remembers the sector data and save time the region header had for the
+ * chunk when the entry was recorded; an entry that no longer matches the header,
+ * for example because the server stopped before the index was saved, is ignored.
+ */
+public class ChunkStatusIndex {
+   private static final Logger LOGGER = LogManager.getLogger();
+   public static final String EXTENSION = ".mcs";
+   private static final int VERSION = 1;
+   private static final List<ChunkStatus> STATUSES = ChunkStatus.createOrderedList();
+   private final Path file;
+   private final int[] sectorData = new int[1024];
+   private final int[] saveTimes = new int[1024];
+   private final byte[] statuses = new byte[1024];
+   private boolean dirty;
+
+   private ChunkStatusIndex(Path file) {
+      this.file = file;
+   }
+
+   public static ChunkStatusIndex load(Path file) {
+      ChunkStatusIndex chunkStatusIndex = new ChunkStatusIndex(file);
+      if (Files.exists(file, new LinkOption[0])) {
+         try {
+            DataInputStream dataInputStream = new DataInputStream(Files.newInputStream(file));
+
+            try {
+               int i = dataInputStream.readInt();
+               if (i != VERSION) {
+                  LOGGER.warn((String)"Ignoring chunk status index {} with unknown version {}", (Object)file, (Object)i);
+               } else {
+                  for(int j = 0; j < 1024; ++j) {
+                     chunkStatusIndex.sectorData[j] = dataInputStream.readInt();
+                     chunkStatusIndex.saveTimes[j] = dataInputStream.readInt();
+                  }
+
+                  dataInputStream.readFully(chunkStatusIndex.statuses);
+               }
+            } finally {
+               dataInputStream.close();
+            }
+         } catch (IOException var8) {
+            LOGGER.warn((String)"Failed to read chunk status index {}", (Object)file, (Object)var8);
+            return new ChunkStatusIndex(file);
+         }
+      }
+
+      return chunkStatusIndex;
+   }
+
+   /**
+    * {@return the recorded status of a chunk, or {@code null} if there is no
+    * entry for the chunk as it is currently stored}
+    */
+   @Nullable
+   public ChunkStatus get(int index, int sectorData, int saveTime) {
+      int i = this.statuses[index] & 255;
+      return i != 0 && i <= STATUSES.size() && this.sectorData[index] == sectorData && this.saveTimes[index] == saveTime ? (ChunkStatus)STATUSES.get(i - 1) : null;
+   }
+
+   public void set(int index, int sectorData, int saveTime, @Nullable ChunkStatus status) {
+      this.sectorData[index] = sectorData;
+      this.saveTimes[index] = saveTime;
+      this.statuses[index] = status == null ? 0 : (byte)(status.getIndex() + 1);
+      this.dirty = true;
+   }
+
+   public void save() throws IOException {
+      if (this.dirty) {
+         Path path = Files.createTempFile(this.file.getParent(), "tmp", (String)null);
+         DataOutputStream dataOutputStream = new DataOutputStream(Files.newOutputStream(path));
+
+         try {
+            dataOutputStream.writeInt(VERSION);
+
+            for(int i = 0; i < 1024; ++i) {
+               dataOutputStream.writeInt(this.sectorData[i]);
+               dataOutputStream.writeInt(this.saveTimes[i]);
+            }
+
+            dataOutputStream.write(this.statuses);
+         } finally {
+            dataOutputStream.close();
+         }
+
+         Files.move(path, this.file, StandardCopyOption.REPLACE_EXISTING);
+         this.dirty = false;
+      }
+   }
+
+   /**
+    * {@return the status stored in the given chunk NBT, or {@code null} if the
+    * NBT needs to be upgraded before its status can be trusted}
+    */
+   @Nullable
+   public static ChunkStatus getStatus(@Nullable NbtCompound nbt) {
+      if (nbt != null && VersionedChunkStorage.getDataVersion(nbt) == SharedConstants.getGameVersion().getWorldVersion()) {
+         NbtCompound nbtCompound = nbt.getCompound("Level");
+         return nbtCompound.contains("Status", 8) ? ChunkStatus.byId(nbtCompound.getString("Status")) : null;
+      } else {
+         return null;
+      }
+   }
+
+   /**
+    * What is known about a stored chunk without reading it.
+    */
+   public static class Entry {
+      @Nullable
+      private final ChunkStatus status;
+      private final long lastSaveTime;
+
+      public Entry(@Nullable ChunkStatus status, long lastSaveTime) {
+         this.status = status;
+         this.lastSaveTime = lastSaveTime;
+      }
+
+      /**
+       * {@return the generation status of the chunk, or {@code null} if it is not
+       * indexed and the chunk has to be read to find it out}
+       */
+      @Nullable
+      public ChunkStatus getStatus() {
+         return this.status;
+      }
+
+      /**
+       * {@return the time the chunk was last saved, in milliseconds since the epoch}
+       */
+      public long getLastSaveTime() {
+         return this.lastSaveTime;
+      }
+   }
+}
@@ -0,0 +1,250 @@
+package net.minecraft.world.storage;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds the preset deflate dictionaries of a region directory.
+ *
+ * <p>Dictionaries are stored next to the region files as {@code d.<adler32>.mcd}.
+ * Chunks are always decompressed with the dictionary whose checksum is recorded
+ * in their stream, so older chunks stay readable after the dictionary is retrained;
+ * new chunks are written with the most recently trained dictionary.
+ */
+public class ChunkStreamDictionaries {
+   private static final Logger LOGGER = LogManager.getLogger();
+   private static final String PREFIX = "d.";
+   private static final String EXTENSION = ".mcd";
+   public static final int MAX_SIZE = 32768;
+   private static final int SEGMENT_LENGTH = 32;
+   private static final int SEGMENT_STRIDE = 4;
+   private final Path directory;
+   private final Int2ObjectMap<byte[]> dictionaries = new Int2ObjectOpenHashMap();
+   @Nullable
+   private byte[] currentDictionary;
+
+   private ChunkStreamDictionaries(Path directory) {
+      this.directory = directory;
+   }
+
+   public static ChunkStreamDictionaries load(Path directory) {
+      ChunkStreamDictionaries chunkStreamDictionaries = new ChunkStreamDictionaries(directory);
+      if (!Files.isDirectory(directory, new LinkOption[0])) {
+         return chunkStreamDictionaries;
+      } else {
+         FileTime fileTime = null;
+
+         try {
+            DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, PREFIX + "*" + EXTENSION);
+
+            try {
+               Iterator var4 = directoryStream.iterator();
+
+               while(var4.hasNext()) {
+                  Path path = (Path)var4.next();
+
+                  try {
+                     byte[] bs = Files.readAllBytes(path);
+                     int i = getChecksum(bs);
+                     chunkStreamDictionaries.dictionaries.put(i, bs);
+                     FileTime fileTime2 = Files.getLastModifiedTime(path);
+                     if (fileTime == null || fileTime2.compareTo(fileTime) > 0) {
+                        fileTime = fileTime2;
+                        chunkStreamDictionaries.currentDictionary = bs;
+                     }
+                  } catch (IOException var10) {
+                     LOGGER.error((String)"Failed to read chunk dictionary {}", (Object)path, (Object)var10);
+                  }
+               }
+            } finally {
+               directoryStream.close();
+            }
+         } catch (IOException var12) {
+            LOGGER.error((String)"Failed to list chunk dictionaries in {}", (Object)directory, (Object)var12);
+         }
+
+         return chunkStreamDictionaries;
+      }
+   }
+
+   public boolean hasCurrent() {
+      return this.currentDictionary != null;
+   }
+
+   @Nullable
+   public byte[] get(int checksum) {
+      return (byte[])this.dictionaries.get(checksum);
+   }
+
+   /**
+    * Stores a new dictionary and makes it the one used for subsequent writes.
+    */
+   public void save(byte[] dictionary) throws IOException {
+      int i = getChecksum(dictionary);
+      Path path = this.directory.resolve(PREFIX + Integer.toHexString(i) + EXTENSION);
+      Path path2 = Files.createTempFile(this.directory, "tmp", (String)null);
+      Files.write(path2, dictionary);
+      Files.move(path2, path, StandardCopyOption.REPLACE_EXISTING);
+      this.dictionaries.put(i, dictionary);
+      this.currentDictionary = dictionary;
+   }
+
+   public OutputStream wrap(OutputStream outputStream) throws IOException {
+      if (this.currentDictionary == null) {
+         throw new IOException("No chunk dictionary in " + this.directory);
+      } else {
+         final Deflater deflater = new Deflater();
+         deflater.setDictionary(this.currentDictionary);
+         return new DeflaterOutputStream(outputStream, deflater) {
+            public void close() throws IOException {
+               try {
+                  super.close();
+               } finally {
+                  deflater.end();
+               }
+
+            }
+         };
+      }
+   }
+
+   public InputStream wrap(InputStream inputStream) {
+      return new ChunkStreamDictionaries.DictionaryInflaterInputStream(inputStream, new Inflater());
+   }
+
+   private static int getChecksum(byte[] dictionary) {
+      Adler32 adler32 = new Adler32();
+      adler32.update(dictionary);
+      return (int)adler32.getValue();
+   }
+
+   /**
+    * Builds a dictionary out of the byte sequences that recur most often across
+    * the given samples, which are expected to be uncompressed chunk NBT.
+    *
+    * <p>The most frequent sequences end up at the end of the dictionary, where
+    * deflate can reference them with the shortest distances.
+    */
+   public static byte[] train(List<byte[]> samples, int maxSize) {
+      Long2IntOpenHashMap long2IntOpenHashMap = new Long2IntOpenHashMap();
+      Long2LongOpenHashMap long2LongOpenHashMap = new Long2LongOpenHashMap();
+
+      for(int i = 0; i < samples.size(); ++i) {
+         byte[] bs = (byte[])samples.get(i);
+
+         for(int j = 0; j + SEGMENT_LENGTH <= bs.length; j += SEGMENT_STRIDE) {
+            long l = hashSegment(bs, j);
+            long2IntOpenHashMap.addTo(l, 1);
+            long2LongOpenHashMap.putIfAbsent(l, (long)i << 32 | (long)j);
+         }
+      }
+
+      LongArrayList longArrayList = new LongArrayList();
+      ObjectIterator var11 = long2IntOpenHashMap.long2IntEntrySet().fastIterator();
+
+      while(var11.hasNext()) {
+         Long2IntMap.Entry entry = (Long2IntMap.Entry)var11.next();
+         if (entry.getIntValue() > 1) {
+            longArrayList.add(entry.getLongKey());
+         }
+      }
+
+      longArrayList.sort((a, b) -> {
+         return Integer.compare(long2IntOpenHashMap.get(b), long2IntOpenHashMap.get(a));
+      });
+      int k = Math.min(longArrayList.size(), maxSize / SEGMENT_LENGTH);
+      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(k * SEGMENT_LENGTH);
+
+      for(int m = k - 1; m >= 0; --m) {
+         long n = long2LongOpenHashMap.get(longArrayList.getLong(m));
+         byteArrayOutputStream.write((byte[])samples.get((int)(n >>> 32)), (int)n, SEGMENT_LENGTH);
+      }
+
+      return byteArrayOutputStream.toByteArray();
+   }
+
+   private static long hashSegment(byte[] bytes, int offset) {
+      long l = -3750763034362895579L;
+
+      for(int i = 0; i < SEGMENT_LENGTH; ++i) {
+         l ^= (long)(bytes[offset + i] & 255);
+         l *= 1099511628211L;
+      }
+
+      return l;
+   }
+
+   class DictionaryInflaterInputStream extends InflaterInputStream {
+      DictionaryInflaterInputStream(InputStream inputStream, Inflater inflater) {
+         super(inputStream, inflater);
+      }
+
+      public int read(byte[] b, int off, int len) throws IOException {
+         if (len == 0) {
+            return 0;
+         } else {
+            try {
+               int i;
+               while((i = this.inf.inflate(b, off, len)) == 0) {
+                  if (this.inf.needsDictionary()) {
+                     byte[] bs = ChunkStreamDictionaries.this.get(this.inf.getAdler());
+                     if (bs == null) {
+                        throw new ZipException("Missing chunk dictionary " + Integer.toHexString(this.inf.getAdler()) + " in " + ChunkStreamDictionaries.this.directory);
+                     }
+
+                     this.inf.setDictionary(bs);
+                  } else {
+                     if (this.inf.finished()) {
+                        return -1;
+                     }
+
+                     if (this.inf.needsInput()) {
+                        this.fill();
+                     }
+                  }
+               }
+
+               return i;
+            } catch (DataFormatException var6) {
+               throw new ZipException(var6.getMessage());
+            }
+         }
+      }
+
+      public void close() throws IOException {
+         try {
+            super.close();
+         } finally {
+            this.inf.end();
+         }
+
+      }
+   }
+}
@@ -1,10 +1,12 @@
 package net.minecraft.world.storage;
 
+import com.google.common.collect.Maps;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Map;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
@@ -13,51 +15,127 @@ import org.jetbrains.annotations.Nullable;
 
 public class ChunkStreamVersion {
    private static final Int2ObjectMap<ChunkStreamVersion> VERSIONS = new Int2ObjectOpenHashMap();
-   public static final ChunkStreamVersion GZIP = add(new ChunkStreamVersion(1, GZIPInputStream::new, GZIPOutputStream::new));
-   public static final ChunkStreamVersion DEFLATE = add(new ChunkStreamVersion(2, InflaterInputStream::new, DeflaterOutputStream::new));
-   public static final ChunkStreamVersion UNCOMPRESSED = add(new ChunkStreamVersion(3, (inputStream) -> {
+   private static final Map<String, ChunkStreamVersion> VERSIONS_BY_NAME = Maps.newHashMap();
+   public static final ChunkStreamVersion GZIP = add(new ChunkStreamVersion(1, "gzip", false, (inputStream, dictionaries) -> {
+      return new GZIPInputStream(inputStream);
+   }, (outputStream, dictionaries) -> {
+      return new GZIPOutputStream(outputStream);
+   }));
+   public static final ChunkStreamVersion DEFLATE = add(new ChunkStreamVersion(2, "deflate", false, (inputStream, dictionaries) -> {
+      return new InflaterInputStream(inputStream);
+   }, (outputStream, dictionaries) -> {
+      return new DeflaterOutputStream(outputStream);
+   }));
+   public static final ChunkStreamVersion UNCOMPRESSED = add(new ChunkStreamVersion(3, "none", false, (inputStream, dictionaries) -> {
       return inputStream;
-   }, (outputStream) -> {
+   }, (outputStream, dictionaries) -> {
       return outputStream;
    }));
+   /**
+    * LZ4 in the block format of {@link Lz4OutputStream}. Its id is kept away from
+    * the low ids vanilla assigns, so that a version reading another LZ4 format
+    * rejects these chunks instead of decoding them wrongly. Ids must stay below
+    * 128, as the high bit of the id flags chunks stored in external files.
+    */
+   public static final ChunkStreamVersion LZ4 = add(new ChunkStreamVersion(100, "lz4", false, (inputStream, dictionaries) -> {
+      return new Lz4InputStream(inputStream);
+   }, (outputStream, dictionaries) -> {
+      return new Lz4OutputStream(outputStream);
+   }));
+   /**
+    * Deflate with a preset dictionary trained on the chunks of the same region directory.
+    *
+    * @see ChunkStreamDictionaries
+    */
+   public static final ChunkStreamVersion DEFLATE_DICTIONARY = add(new ChunkStreamVersion(5, "deflate_dictionary", true, (inputStream, dictionaries) -> {
+      return getDictionaries(dictionaries).wrap(inputStream);
+   }, (outputStream, dictionaries) -> {
+      return getDictionaries(dictionaries).wrap(outputStream);
+   }));
+   private static ChunkStreamVersion current = DEFLATE;
    private final int id;
+   private final String name;
+   private final boolean usesDictionary;
    private final ChunkStreamVersion.Wrapper<InputStream> inputStreamWrapper;
    private final ChunkStreamVersion.Wrapper<OutputStream> outputStreamWrapper;
 
-   private ChunkStreamVersion(int id, ChunkStreamVersion.Wrapper<InputStream> inputStreamWrapper, ChunkStreamVersion.Wrapper<OutputStream> outputStreamWrapper) {
+   private ChunkStreamVersion(int id, String name, boolean usesDictionary, ChunkStreamVersion.Wrapper<InputStream> inputStreamWrapper, ChunkStreamVersion.Wrapper<OutputStream> outputStreamWrapper) {
       this.id = id;
+      this.name = name;
+      this.usesDictionary = usesDictionary;
       this.inputStreamWrapper = inputStreamWrapper;
       this.outputStreamWrapper = outputStreamWrapper;
    }
 
    private static ChunkStreamVersion add(ChunkStreamVersion version) {
       VERSIONS.put(version.id, version);
+      VERSIONS_BY_NAME.put(version.name, version);
       return version;
    }
 
+   private static ChunkStreamDictionaries getDictionaries(@Nullable ChunkStreamDictionaries dictionaries) throws IOException {
+      if (dictionaries == null) {
+         throw new IOException("Chunk stream requires a dictionary, but none is available");
+      } else {
+         return dictionaries;
+      }
+   }
+
    @Nullable
    public static ChunkStreamVersion get(int id) {
       return (ChunkStreamVersion)VERSIONS.get(id);
    }
 
+   @Nullable
+   public static ChunkStreamVersion byName(String name) {
+      return (ChunkStreamVersion)VERSIONS_BY_NAME.get(name);
+   }
+
    public static boolean exists(int id) {
       return VERSIONS.containsKey(id);
    }
 
+   /**
+    * {@return the version new region files write their chunks with}
+    */
+   public static ChunkStreamVersion getCurrent() {
+      return current;
+   }
+
+   public static void setCurrent(ChunkStreamVersion version) {
+      current = version;
+   }
+
    public int getId() {
       return this.id;
    }
 
+   public String getName() {
+      return this.name;
+   }
+
+   public boolean usesDictionary() {
+      return this.usesDictionary;
+   }
+
    public OutputStream wrap(OutputStream outputStream) throws IOException {
-      return (OutputStream)this.outputStreamWrapper.wrap(outputStream);
+      return this.wrap(outputStream, (ChunkStreamDictionaries)null);
    }
 
    public InputStream wrap(InputStream inputStream) throws IOException {
-      return (InputStream)this.inputStreamWrapper.wrap(inputStream);
+      return this.wrap(inputStream, (ChunkStreamDictionaries)null);
+   }
+
+   public OutputStream wrap(OutputStream outputStream, @Nullable ChunkStreamDictionaries dictionaries) throws IOException {
+      return (OutputStream)this.outputStreamWrapper.wrap(outputStream, dictionaries);
+   }
+
+   public InputStream wrap(InputStream inputStream, @Nullable ChunkStreamDictionaries dictionaries) throws IOException {
+      return (InputStream)this.inputStreamWrapper.wrap(inputStream, dictionaries);
    }
 
    @FunctionalInterface
    interface Wrapper<O> {
-      O wrap(O object) throws IOException;
+      O wrap(O object, @Nullable ChunkStreamDictionaries dictionaries) throws IOException;
    }
 }
@@ -0,0 +1,188 @@
+package net.minecraft.world.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the block stream written by {@link Lz4OutputStream}.
+ */
+public class Lz4InputStream extends InputStream {
+   private final InputStream in;
+   @Nullable
+   private Lz4OutputStream.Buffers buffers = Lz4OutputStream.Buffers.acquire();
+   private int position;
+   private int limit;
+   private boolean finished;
+
+   public Lz4InputStream(InputStream in) {
+      this.in = in;
+   }
+
+   public int read() throws IOException {
+      if (!this.fill()) {
+         return -1;
+      } else {
+         return this.buffers.block[this.position++] & 255;
+      }
+   }
+
+   public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+         return 0;
+      } else if (!this.fill()) {
+         return -1;
+      } else {
+         int i = Math.min(len, this.limit - this.position);
+         System.arraycopy(this.buffers.block, this.position, b, off, i);
+         this.position += i;
+         return i;
+      }
+   }
+
+   public int available() {
+      return this.limit - this.position;
+   }
+
+   public void close() throws IOException {
+      Lz4OutputStream.Buffers.release(this.buffers);
+      this.buffers = null;
+      this.in.close();
+   }
+
+   private boolean fill() throws IOException {
+      if (this.buffers == null) {
+         throw new IOException("Stream closed");
+      }
+
+      byte[] bs = this.buffers.block;
+      byte[] cs = this.buffers.compressed;
+
+      while(this.position == this.limit) {
+         if (this.finished) {
+            return false;
+         }
+
+         int i = this.readInt();
+         int j = this.readInt();
+         if (i == 0) {
+            this.finished = true;
+            return false;
+         }
+
+         if (i < 0 || i > bs.length || j <= 0 || j > cs.length) {
+            throw new IOException("Invalid LZ4 block: " + i + " bytes stored in " + j);
+         }
+
+         if (j == i) {
+            this.readFully(bs, i);
+         } else {
+            this.readFully(cs, j);
+            decompress(cs, j, bs, i);
+         }
+
+         this.position = 0;
+         this.limit = i;
+      }
+
+      return true;
+   }
+
+   private void readFully(byte[] bytes, int length) throws IOException {
+      int j;
+      for(int i = 0; i < length; i += j) {
+         j = this.in.read(bytes, i, length - i);
+         if (j < 0) {
+            throw new EOFException("LZ4 block is truncated");
+         }
+      }
+
+   }
+
+   private int readInt() throws IOException {
+      int i = this.in.read();
+      int j = this.in.read();
+      int k = this.in.read();
+      int l = this.in.read();
+      if ((i | j | k | l) < 0) {
+         throw new EOFException("LZ4 stream is truncated");
+      } else {
+         return i << 24 | j << 16 | k << 8 | l;
+      }
+   }
+
+   static void decompress(byte[] src, int srcLength, byte[] dest, int destLength) throws IOException {
+      int i = 0;
+      int j = 0;
+
+      while(i < srcLength) {
+         int k = src[i++] & 255;
+         int l = k >>> 4;
+         if (l == 15) {
+            int m;
+            do {
+               if (i >= srcLength) {
+                  throw new IOException("Malformed LZ4 block: truncated literal length");
+               }
+
+               m = src[i++] & 255;
+               l += m;
+            } while(m == 255);
+         }
+
+         if (l > srcLength - i || l > destLength - j) {
+            throw new IOException("Malformed LZ4 block: literals out of bounds");
+         }
+
+         System.arraycopy(src, i, dest, j, l);
+         i += l;
+         j += l;
+         if (i == srcLength) {
+            break;
+         }
+
+         if (i + 2 > srcLength) {
+            throw new IOException("Malformed LZ4 block: truncated match offset");
+         }
+
+         int n = src[i] & 255 | (src[i + 1] & 255) << 8;
+         i += 2;
+         int o = j - n;
+         if (n == 0 || o < 0) {
+            throw new IOException("Malformed LZ4 block: match offset out of bounds");
+         }
+
+         int p = k & 15;
+         if (p == 15) {
+            int q;
+            do {
+               if (i >= srcLength) {
+                  throw new IOException("Malformed LZ4 block: truncated match length");
+               }
+
+               q = src[i++] & 255;
+               p += q;
+            } while(q == 255);
+         }
+
+         p += Lz4OutputStream.MIN_MATCH;
+         if (p > destLength - j) {
+            throw new IOException("Malformed LZ4 block: match out of bounds");
+         }
+
+         if (n >= p) {
+            System.arraycopy(dest, o, dest, j, p);
+            j += p;
+         } else {
+            for(int r = 0; r < p; ++r) {
+               dest[j++] = dest[o + r];
+            }
+         }
+      }
+
+      if (j != destLength) {
+         throw new IOException("Malformed LZ4 block: expected " + destLength + " bytes but got " + j);
+      }
+   }
+}
@@ -0,0 +1,256 @@
+package net.minecraft.world.storage;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes data as a sequence of LZ4 blocks. Each block is prefixed by its raw
+ * and stored length as big-endian ints; a block whose stored length equals its
+ * raw length is stored uncompressed. A raw length of zero ends the stream.
+ */
+public class Lz4OutputStream extends FilterOutputStream {
+   static final int BLOCK_SIZE = 131072;
+   static final int MIN_MATCH = 4;
+   private static final int LAST_LITERALS = 5;
+   private static final int MATCH_FIND_LIMIT = 12;
+   private static final int MAX_DISTANCE = 65535;
+   private static final int HASH_LOG = 14;
+   @Nullable
+   private Lz4OutputStream.Buffers buffers = Lz4OutputStream.Buffers.acquire();
+   private int count;
+   private boolean finished;
+
+   public Lz4OutputStream(OutputStream out) {
+      super(out);
+   }
+
+   private Lz4OutputStream.Buffers getBuffers() throws IOException {
+      if (this.buffers == null) {
+         throw new IOException("Stream closed");
+      } else {
+         return this.buffers;
+      }
+   }
+
+   public void write(int b) throws IOException {
+      byte[] bs = this.getBuffers().block;
+      if (this.count == bs.length) {
+         this.writeBlock();
+      }
+
+      bs[this.count++] = (byte)b;
+   }
+
+   public void write(byte[] b, int off, int len) throws IOException {
+      byte[] bs = this.getBuffers().block;
+
+      while(len > 0) {
+         if (this.count == bs.length) {
+            this.writeBlock();
+         }
+
+         int i = Math.min(len, bs.length - this.count);
+         System.arraycopy(b, off, bs, this.count, i);
+         this.count += i;
+         off += i;
+         len -= i;
+      }
+
+   }
+
+   public void flush() throws IOException {
+      this.writeBlock();
+      this.out.flush();
+   }
+
+   public void close() throws IOException {
+      if (!this.finished) {
+         this.finished = true;
+
+         try {
+            this.writeBlock();
+            this.writeInt(0);
+            this.writeInt(0);
+         } finally {
+            Lz4OutputStream.Buffers.release(this.buffers);
+            this.buffers = null;
+            this.out.close();
+         }
+      }
+
+   }
+
+   private void writeBlock() throws IOException {
+      if (this.count != 0) {
+         Lz4OutputStream.Buffers buffers = this.getBuffers();
+         int i = compress(buffers.block, this.count, buffers.compressed, buffers.getHashTable());
+         this.writeInt(this.count);
+         if (i < this.count) {
+            this.writeInt(i);
+            this.out.write(buffers.compressed, 0, i);
+         } else {
+            this.writeInt(this.count);
+            this.out.write(buffers.block, 0, this.count);
+         }
+
+         this.count = 0;
+      }
+   }
+
+   private void writeInt(int value) throws IOException {
+      this.out.write(value >>> 24 & 255);
+      this.out.write(value >>> 16 & 255);
+      this.out.write(value >>> 8 & 255);
+      this.out.write(value & 255);
+   }
+
+   static int getMaxCompressedLength(int length) {
+      return length + length / 255 + 16;
+   }
+
+   private static int readInt(byte[] bytes, int offset) {
+      return bytes[offset] & 255 | (bytes[offset + 1] & 255) << 8 | (bytes[offset + 2] & 255) << 16 | (bytes[offset + 3] & 255) << 24;
+   }
+
+   private static int hash(int value) {
+      return value * -1640531535 >>> 32 - HASH_LOG;
+   }
+
+   private static int writeLength(byte[] dest, int offset, int length) {
+      while(length >= 255) {
+         dest[offset++] = -1;
+         length -= 255;
+      }
+
+      dest[offset++] = (byte)length;
+      return offset;
+   }
+
+   static int compress(byte[] src, int length, byte[] dest, int[] hashTable) {
+      int i = 0;
+      int j = 0;
+      if (length >= MATCH_FIND_LIMIT + 1) {
+         Arrays.fill(hashTable, -1);
+         int k = length - LAST_LITERALS;
+         int l = length - MATCH_FIND_LIMIT;
+         int m = 1;
+
+         while(true) {
+            int n = -1;
+            int o = 64;
+
+            while(m < l) {
+               int p = hash(readInt(src, m));
+               int q = hashTable[p];
+               hashTable[p] = m;
+               if (q >= 0 && m - q <= MAX_DISTANCE && readInt(src, q) == readInt(src, m)) {
+                  n = q;
+                  break;
+               }
+
+               m += o++ >> 6;
+            }
+
+            if (n < 0) {
+               break;
+            }
+
+            while(m > i && n > 0 && src[m - 1] == src[n - 1]) {
+               --m;
+               --n;
+            }
+
+            int r = MIN_MATCH;
+
+            while(m + r < k && src[m + r] == src[n + r]) {
+               ++r;
+            }
+
+            int s = m - i;
+            int t = j++;
+            int u;
+            if (s >= 15) {
+               u = 240;
+               j = writeLength(dest, j, s - 15);
+            } else {
+               u = s << 4;
+            }
+
+            System.arraycopy(src, i, dest, j, s);
+            j += s;
+            int v = m - n;
+            dest[j++] = (byte)v;
+            dest[j++] = (byte)(v >>> 8);
+            int w = r - MIN_MATCH;
+            if (w >= 15) {
+               u |= 15;
+               j = writeLength(dest, j, w - 15);
+            } else {
+               u |= w;
+            }
+
+            dest[t] = (byte)u;
+            m += r;
+            i = m;
+            if (m >= l) {
+               break;
+            }
+
+            hashTable[hash(readInt(src, m - 2))] = m - 2;
+         }
+      }
+
+      int x = length - i;
+      if (x >= 15) {
+         dest[j++] = -16;
+         j = writeLength(dest, j, x - 15);
+      } else {
+         dest[j++] = (byte)(x << 4);
+      }
+
+      System.arraycopy(src, i, dest, j, x);
+      return j + x;
+   }
+
+   /**
+    * The buffers of an LZ4 stream. They are kept per thread, so that the chunk
+    * streams opened one after another on the I/O threads reuse them instead of
+    * allocating them for every chunk. A thread opening a stream while another
+    * one holds its buffers gets new ones.
+    */
+   static class Buffers {
+      private static final ThreadLocal<Lz4OutputStream.Buffers> CACHE = new ThreadLocal();
+      final byte[] block = new byte[BLOCK_SIZE];
+      final byte[] compressed = new byte[getMaxCompressedLength(BLOCK_SIZE)];
+      @Nullable
+      private int[] hashTable;
+
+      static Lz4OutputStream.Buffers acquire() {
+         Lz4OutputStream.Buffers buffers = (Lz4OutputStream.Buffers)CACHE.get();
+         if (buffers != null) {
+            CACHE.set(null);
+            return buffers;
+         } else {
+            return new Lz4OutputStream.Buffers();
+         }
+      }
+
+      static void release(@Nullable Lz4OutputStream.Buffers buffers) {
+         if (buffers != null) {
+            CACHE.set(buffers);
+         }
+
+      }
+
+      int[] getHashTable() {
+         if (this.hashTable == null) {
+            this.hashTable = new int[1 << HASH_LOG];
+         }
+
+         return this.hashTable;
+      }
+   }
+}
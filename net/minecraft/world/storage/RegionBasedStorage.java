@@ -12,6 +12,7 @@ import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtIo;
 import net.minecraft.util.ThrowableDeliverer;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkStatus;
 import org.jetbrains.annotations.Nullable;
 
 public final class RegionBasedStorage implements AutoCloseable {
@@ -20,19 +21,37 @@ public final class RegionBasedStorage implements AutoCloseable {
    private final Long2ObjectLinkedOpenHashMap<RegionFile> cachedRegionFiles = new Long2ObjectLinkedOpenHashMap();
    private final File directory;
    private final boolean dsync;
+   private final int maxCachedRegionFiles;
+   private final boolean statusIndexed;
+   @Nullable
+   private ChunkStreamDictionaries dictionaries;
 
    RegionBasedStorage(File directory, boolean dsync) {
+      this(directory, dsync, 256);
+   }
+
+   RegionBasedStorage(File directory, boolean dsync, int maxCachedRegionFiles) {
+      this(directory, dsync, maxCachedRegionFiles, false);
+   }
+
+   /**
+    * @param statusIndexed whether the stored NBT is chunk NBT whose status should be
+    * recorded in a {@link ChunkStatusIndex} next to each region file
+    */
+   RegionBasedStorage(File directory, boolean dsync, int maxCachedRegionFiles, boolean statusIndexed) {
       this.directory = directory;
       this.dsync = dsync;
+      this.maxCachedRegionFiles = maxCachedRegionFiles;
+      this.statusIndexed = statusIndexed;
    }
 
-   private RegionFile getRegionFile(ChunkPos pos) throws IOException {
+   RegionFile getRegionFile(ChunkPos pos) throws IOException {
       long l = ChunkPos.toLong(pos.getRegionX(), pos.getRegionZ());
       RegionFile regionFile = (RegionFile)this.cachedRegionFiles.getAndMoveToFirst(l);
       if (regionFile != null) {
          return regionFile;
       } else {
-         if (this.cachedRegionFiles.size() >= 256) {
+         if (this.cachedRegionFiles.size() >= this.maxCachedRegionFiles) {
             ((RegionFile)this.cachedRegionFiles.removeLast()).close();
          }
 
@@ -40,18 +59,37 @@ public final class RegionBasedStorage implements AutoCloseable {
             this.directory.mkdirs();
          }
 
-         File var10002 = this.directory;
-         int var10003 = pos.getRegionX();
-         File file = new File(var10002, "r." + var10003 + "." + pos.getRegionZ() + ".mca");
-         RegionFile regionFile2 = new RegionFile(file, this.directory, this.dsync);
+         File file = this.getRegionPath(pos);
+         RegionFile regionFile2 = new RegionFile(file.toPath(), this.directory.toPath(), ChunkStreamVersion.getCurrent(), this.getDictionaries(), this.statusIndexed, this.dsync);
          this.cachedRegionFiles.putAndMoveToFirst(l, regionFile2);
          return regionFile2;
       }
    }
 
+   private File getRegionPath(ChunkPos pos) {
+      return new File(this.directory, "r." + pos.getRegionX() + "." + pos.getRegionZ() + ".mca");
+   }
+
+   private ChunkStreamDictionaries getDictionaries() {
+      if (this.dictionaries == null) {
+         this.dictionaries = ChunkStreamDictionaries.load(this.directory.toPath());
+      }
+
+      return this.dictionaries;
+   }
+
    @Nullable
    public NbtCompound getTagAt(ChunkPos pos) throws IOException {
-      RegionFile regionFile = this.getRegionFile(pos);
+      return readTag(this.getRegionFile(pos), pos);
+   }
+
+   /**
+    * Reads a chunk from a region file of this storage. Unlike the other methods,
+    * this can be called from any thread, but fails once the region file was
+    * closed.
+    */
+   @Nullable
+   static NbtCompound readTag(RegionFile regionFile, ChunkPos pos) throws IOException {
       DataInputStream dataInputStream = regionFile.getChunkInputStream(pos);
 
       NbtCompound var4;
@@ -113,10 +151,40 @@ public final class RegionBasedStorage implements AutoCloseable {
          if (dataOutputStream != null) {
             dataOutputStream.close();
          }
+
+         if (this.statusIndexed) {
+            regionFile.setChunkStatus(pos, ChunkStatusIndex.getStatus(nbt));
+         }
       }
 
    }
 
+   /**
+    * {@return what is known about the stored chunk, or {@code null} if there is
+    * no such chunk}
+    *
+    * <p>Chunks missing from the status index are read once to fill it in. Region
+    * files that do not exist yet are not created.
+    */
+   @Nullable
+   public ChunkStatusIndex.Entry getChunkStatus(ChunkPos pos) throws IOException {
+      if (!this.cachedRegionFiles.containsKey(ChunkPos.toLong(pos.getRegionX(), pos.getRegionZ())) && !this.getRegionPath(pos).exists()) {
+         return null;
+      } else {
+         RegionFile regionFile = this.getRegionFile(pos);
+         ChunkStatusIndex.Entry entry = regionFile.getChunkStatus(pos);
+         if (entry != null && entry.getStatus() == null && this.statusIndexed) {
+            ChunkStatus chunkStatus = ChunkStatusIndex.getStatus(this.getTagAt(pos));
+            if (chunkStatus != null) {
+               regionFile.setChunkStatus(pos, chunkStatus);
+               entry = new ChunkStatusIndex.Entry(chunkStatus, entry.getLastSaveTime());
+            }
+         }
+
+         return entry;
+      }
+   }
+
    public void close() throws IOException {
       ThrowableDeliverer<IOException> throwableDeliverer = new ThrowableDeliverer();
       ObjectIterator var2 = this.cachedRegionFiles.values().iterator();
@@ -19,8 +19,12 @@ import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import net.minecraft.util.Util;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkStatus;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
@@ -45,19 +49,51 @@ public class RegionFile implements AutoCloseable {
    private final IntBuffer saveTimes;
    @VisibleForTesting
    protected final SectorMap sectors;
+   @Nullable
+   private final ChunkStreamDictionaries dictionaries;
+   /**
+    * Guards the chunk locations against reads. Reads share the read lock and
+    * run in parallel, while writes take the write lock to update the header and
+    * free the replaced sectors, so no sectors are reused under a running read.
+    * Writes are serialized among themselves by the monitor of the region file.
+    */
+   private final Lock readLock;
+   private final Lock writeLock;
+   @Nullable
+   private final ChunkStatusIndex statusIndex;
 
    public RegionFile(File file, File directory, boolean dsync) throws IOException {
-      this(file.toPath(), directory.toPath(), ChunkStreamVersion.DEFLATE, dsync);
+      this(file.toPath(), directory.toPath(), ChunkStreamVersion.getCurrent(), (ChunkStreamDictionaries)null, dsync);
    }
 
    public RegionFile(Path file, Path directory, ChunkStreamVersion outputChunkStreamVersion, boolean dsync) throws IOException {
+      this(file, directory, outputChunkStreamVersion, (ChunkStreamDictionaries)null, dsync);
+   }
+
+   public RegionFile(Path file, Path directory, ChunkStreamVersion outputChunkStreamVersion, @Nullable ChunkStreamDictionaries dictionaries, boolean dsync) throws IOException {
+      this(file, directory, outputChunkStreamVersion, dictionaries, false, dsync);
+   }
+
+   public RegionFile(Path file, Path directory, ChunkStreamVersion outputChunkStreamVersion, @Nullable ChunkStreamDictionaries dictionaries, boolean statusIndexed, boolean dsync) throws IOException {
       this.header = ByteBuffer.allocateDirect(8192);
       this.sectors = new SectorMap();
       this.outputChunkStreamVersion = outputChunkStreamVersion;
+      this.dictionaries = dictionaries;
+      ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+      this.readLock = readWriteLock.readLock();
+      this.writeLock = readWriteLock.writeLock();
       if (!Files.isDirectory(directory, new LinkOption[0])) {
          throw new IllegalArgumentException("Expected directory, got " + directory.toAbsolutePath());
       } else {
          this.directory = directory;
+         if (statusIndexed) {
+            String string = file.getFileName().toString();
+            int o = string.lastIndexOf(46);
+            this.statusIndex = ChunkStatusIndex.load(file.resolveSibling((o < 0 ? string : string.substring(0, o)) + ChunkStatusIndex.EXTENSION));
+         } else {
+            this.statusIndex = null;
+         }
+
          this.sectorData = this.header.asIntBuffer();
          this.sectorData.limit(1024);
          this.header.position(4096);
@@ -107,8 +143,23 @@ public class RegionFile implements AutoCloseable {
       return this.directory.resolve(string);
    }
 
+   /**
+    * Reads the chunk into memory and returns a stream decompressing it. Can be
+    * called from several threads at once, also while a chunk is written.
+    */
+   @Nullable
+   public DataInputStream getChunkInputStream(ChunkPos pos) throws IOException {
+      this.readLock.lock();
+
+      try {
+         return this.readChunkInputStream(pos);
+      } finally {
+         this.readLock.unlock();
+      }
+   }
+
    @Nullable
-   public synchronized DataInputStream getChunkInputStream(ChunkPos pos) throws IOException {
+   private DataInputStream readChunkInputStream(ChunkPos pos) throws IOException {
       int i = this.getSectorData(pos);
       if (i == 0) {
          return null;
@@ -169,7 +220,7 @@ public class RegionFile implements AutoCloseable {
          LOGGER.error((String)"Chunk {} has invalid chunk stream version {}", (Object)chunkPos, (Object)b);
          return null;
       } else {
-         return new DataInputStream(new BufferedInputStream(chunkStreamVersion.wrap(inputStream)));
+         return new DataInputStream(new BufferedInputStream(chunkStreamVersion.wrap(inputStream, this.dictionaries)));
       }
    }
 
@@ -253,22 +304,71 @@ public class RegionFile implements AutoCloseable {
    }
 
    public DataOutputStream getChunkOutputStream(ChunkPos pos) throws IOException {
-      return new DataOutputStream(new BufferedOutputStream(this.outputChunkStreamVersion.wrap((OutputStream)(new RegionFile.ChunkBuffer(pos)))));
+      ChunkStreamVersion chunkStreamVersion = this.outputChunkStreamVersion;
+      if (chunkStreamVersion.usesDictionary() && (this.dictionaries == null || !this.dictionaries.hasCurrent())) {
+         chunkStreamVersion = ChunkStreamVersion.DEFLATE;
+      }
+
+      return new DataOutputStream(new BufferedOutputStream(chunkStreamVersion.wrap((OutputStream)(new RegionFile.ChunkBuffer(pos, chunkStreamVersion)), this.dictionaries)));
    }
 
    public void sync() throws IOException {
       this.channel.force(true);
+      this.saveStatusIndex();
+   }
+
+   private synchronized void saveStatusIndex() throws IOException {
+      if (this.statusIndex != null) {
+         this.statusIndex.save();
+      }
+
+   }
+
+   /**
+    * Records the generation status of the chunk as it is currently stored.
+    * Does nothing if this region file does not keep a status index.
+    */
+   public synchronized void setChunkStatus(ChunkPos pos, @Nullable ChunkStatus status) {
+      if (this.statusIndex != null) {
+         int i = getIndex(pos);
+         this.statusIndex.set(i, this.sectorData.get(i), this.saveTimes.get(i), status);
+      }
+
+   }
+
+   /**
+    * {@return what the region header and status index know about the chunk, or
+    * {@code null} if the chunk is not stored}
+    */
+   @Nullable
+   public synchronized ChunkStatusIndex.Entry getChunkStatus(ChunkPos pos) {
+      int i = getIndex(pos);
+      int j = this.sectorData.get(i);
+      if (j == 0) {
+         return null;
+      } else {
+         int k = this.saveTimes.get(i);
+         return new ChunkStatusIndex.Entry(this.statusIndex != null ? this.statusIndex.get(i, j, k) : null, (long)k * 1000L);
+      }
    }
 
-   public void method_31740(ChunkPos chunkPos) throws IOException {
+   public synchronized void method_31740(ChunkPos chunkPos) throws IOException {
       int i = getIndex(chunkPos);
       int j = this.sectorData.get(i);
       if (j != 0) {
-         this.sectorData.put(i, 0);
-         this.saveTimes.put(i, method_31739());
-         this.writeHeader();
+         this.writeLock.lock();
+
+         try {
+            this.sectorData.put(i, 0);
+            this.saveTimes.put(i, method_31739());
+            this.writeHeader();
+            this.sectors.free(getOffset(j), getSize(j));
+         } finally {
+            this.writeLock.unlock();
+         }
+
+         this.setChunkStatus(chunkPos, (ChunkStatus)null);
          Files.deleteIfExists(this.getExternalChunkPath(chunkPos));
-         this.sectors.free(getOffset(j), getSize(j));
       }
    }
 
@@ -286,8 +386,9 @@ public class RegionFile implements AutoCloseable {
          LOGGER.warn((String)"Saving oversized chunk {} ({} bytes} to external file {}", (Object)pos, m, path);
          n = 1;
          p = this.sectors.allocate(n);
+         byte b = byteBuffer.get(4);
          outputAction2 = this.writeSafely(path, byteBuffer);
-         ByteBuffer byteBuffer2 = this.method_22406();
+         ByteBuffer byteBuffer2 = this.method_22406(b);
          this.channel.write(byteBuffer2, (long)(p * 4096));
       } else {
          p = this.sectors.allocate(n);
@@ -297,20 +398,26 @@ public class RegionFile implements AutoCloseable {
          this.channel.write(byteBuffer, (long)(p * 4096));
       }
 
-      this.sectorData.put(i, this.packSectorData(p, n));
-      this.saveTimes.put(i, method_31739());
-      this.writeHeader();
-      outputAction2.run();
-      if (k != 0) {
-         this.sectors.free(k, l);
+      this.writeLock.lock();
+
+      try {
+         this.sectorData.put(i, this.packSectorData(p, n));
+         this.saveTimes.put(i, method_31739());
+         this.writeHeader();
+         outputAction2.run();
+         if (k != 0) {
+            this.sectors.free(k, l);
+         }
+      } finally {
+         this.writeLock.unlock();
       }
 
    }
 
-   private ByteBuffer method_22406() {
+   private ByteBuffer method_22406(byte chunkStreamVersionId) {
       ByteBuffer byteBuffer = ByteBuffer.allocate(5);
       byteBuffer.putInt(1);
-      byteBuffer.put((byte)(this.outputChunkStreamVersion.getId() | 128));
+      byteBuffer.put((byte)(chunkStreamVersionId | 128));
       byteBuffer.flip();
       return byteBuffer;
    }
@@ -361,6 +468,8 @@ public class RegionFile implements AutoCloseable {
    }
 
    public void close() throws IOException {
+      this.writeLock.lock();
+
       try {
          this.fillLastSector();
       } finally {
@@ -368,9 +477,11 @@ public class RegionFile implements AutoCloseable {
             this.channel.force(true);
          } finally {
             this.channel.close();
+            this.writeLock.unlock();
          }
       }
 
+      this.saveStatusIndex();
    }
 
    private void fillLastSector() throws IOException {
@@ -387,13 +498,13 @@ public class RegionFile implements AutoCloseable {
    private class ChunkBuffer extends ByteArrayOutputStream {
       private final ChunkPos pos;
 
-      public ChunkBuffer(ChunkPos pos) {
+      public ChunkBuffer(ChunkPos pos, ChunkStreamVersion chunkStreamVersion) {
          super(8096);
          super.write(0);
          super.write(0);
          super.write(0);
          super.write(0);
-         super.write(RegionFile.this.outputChunkStreamVersion.getId());
+         super.write(chunkStreamVersion.getId());
          this.pos = pos;
       }
 
@@ -1,42 +1,122 @@
 package net.minecraft.world.storage;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.mojang.datafixers.util.Either;
+import it.unimi.dsi.fastutil.HashCommon;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import net.minecraft.client.util.profiler.SamplingChannel;
+import net.minecraft.client.util.profiler.SamplingRecorder;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.util.Unit;
 import net.minecraft.util.Util;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.profiler.MetricSamplerSupplier;
+import net.minecraft.util.profiler.MetricSuppliers;
 import net.minecraft.util.thread.TaskExecutor;
 import net.minecraft.util.thread.TaskQueue;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
 
-public class StorageIoWorker implements AutoCloseable {
+/**
+ * Reads and writes chunk NBT off the server thread.
+ *
+ * <p>The work is split into lanes, each running on its own {@link TaskExecutor}
+ * and owning its own {@link RegionBasedStorage}. A region file is always handled
+ * by the same lane, so reads and writes of different regions run in parallel while
+ * the operations on a single chunk keep their order. Pending writes are coalesced
+ * per chunk, the last write winning.
+ *
+ * <p>With {@linkplain #setParallelReads parallel reads}, the lane only checks a
+ * read against the pending writes and hands it over to the I/O worker pool, so
+ * reads of a busy region do not queue behind each other and its writes.
+ */
+public class StorageIoWorker implements MetricSamplerSupplier, AutoCloseable {
    private static final Logger LOGGER = LogManager.getLogger();
+   private static final int MAX_CACHED_REGION_FILES = 256;
+   /**
+    * The number of pending chunk writes per lane above which callers that can
+    * postpone their writes, such as autosaves, should do so.
+    */
+   private static final int MAX_PENDING_WRITES_PER_LANE = 1024;
+   private static int laneCount = 1;
+   private static volatile boolean parallelReads;
    private final AtomicBoolean closed = new AtomicBoolean();
-   private final TaskExecutor<TaskQueue.PrioritizedTask> executor;
-   private final RegionBasedStorage storage;
-   private final Map<ChunkPos, StorageIoWorker.Result> results = Maps.newLinkedHashMap();
+   private final String name;
+   private final StorageIoWorker.Lane[] lanes;
+   private final AtomicInteger pendingWrites = new AtomicInteger();
+   private final StorageIoWorker.LatencyTracker readLatency = new StorageIoWorker.LatencyTracker();
+   private final StorageIoWorker.LatencyTracker writeLatency = new StorageIoWorker.LatencyTracker();
 
    protected StorageIoWorker(File directory, boolean dsync, String name) {
-      this.storage = new RegionBasedStorage(directory, dsync);
-      this.executor = new TaskExecutor(new TaskQueue.Prioritized(StorageIoWorker.Priority.values().length), Util.getIoWorkerExecutor(), "IOWorker-" + name);
+      this(directory, dsync, name, false);
+   }
+
+   protected StorageIoWorker(File directory, boolean dsync, String name, boolean statusIndexed) {
+      this.name = name;
+      this.lanes = new StorageIoWorker.Lane[laneCount];
+
+      for(int i = 0; i < this.lanes.length; ++i) {
+         String string = this.lanes.length == 1 ? "IOWorker-" + name : "IOWorker-" + name + "-" + i;
+         this.lanes[i] = new StorageIoWorker.Lane(new RegionBasedStorage(directory, dsync, Math.max(16, MAX_CACHED_REGION_FILES / this.lanes.length), statusIndexed), string);
+      }
+
+      MetricSuppliers.INSTANCE.add(this);
+   }
+
+   /**
+    * Sets the number of lanes that storage workers created from now on split their work into.
+    */
+   public static void setLaneCount(int count) {
+      laneCount = MathHelper.clamp((int)count, (int)1, (int)16);
+   }
+
+   /**
+    * Sets whether chunk reads leave the lane of their region once it is known
+    * that no write of the chunk is pending, so that reads of the same region
+    * run in parallel with each other and with its writes.
+    */
+   public static void setParallelReads(boolean parallel) {
+      parallelReads = parallel;
+   }
+
+   private StorageIoWorker.Lane getLane(ChunkPos pos) {
+      if (this.lanes.length == 1) {
+         return this.lanes[0];
+      } else {
+         long l = ChunkPos.toLong(pos.getRegionX(), pos.getRegionZ());
+         return this.lanes[(int)(HashCommon.mix(l) & 2147483647L) % this.lanes.length];
+      }
    }
 
    public CompletableFuture<Void> setResult(ChunkPos pos, @Nullable NbtCompound nbt) {
-      return this.run(() -> {
-         StorageIoWorker.Result result = (StorageIoWorker.Result)this.results.computeIfAbsent(pos, (chunkPos) -> {
+      return this.setResult(pos, CompletableFuture.completedFuture(nbt));
+   }
+
+   /**
+    * Queues a write of NBT that is still being built. Reads of the chunk issued
+    * after this call wait for the NBT instead of reading the stale data on disk.
+    */
+   public CompletableFuture<Void> setResult(ChunkPos pos, CompletableFuture<NbtCompound> nbt) {
+      StorageIoWorker.Lane lane = this.getLane(pos);
+      return lane.run(() -> {
+         StorageIoWorker.Result result = (StorageIoWorker.Result)lane.results.computeIfAbsent(pos, (chunkPos) -> {
+            this.pendingWrites.incrementAndGet();
             return new StorageIoWorker.Result(nbt);
          });
          result.nbt = nbt;
@@ -60,82 +140,209 @@ public class StorageIoWorker implements AutoCloseable {
    }
 
    protected CompletableFuture<NbtCompound> readChunkData(ChunkPos pos) {
-      return this.run(() -> {
-         StorageIoWorker.Result result = (StorageIoWorker.Result)this.results.get(pos);
+      StorageIoWorker.Lane lane = this.getLane(pos);
+      long l = Util.getMeasuringTimeNano();
+      boolean bl = parallelReads;
+      return lane.run(() -> {
+         return this.readOnLane(lane, pos, l, bl);
+      }).thenCompose(Function.identity());
+   }
+
+   private Either<CompletableFuture<NbtCompound>, Exception> readOnLane(StorageIoWorker.Lane lane, ChunkPos pos, long startTime, boolean parallel) {
+      StorageIoWorker.Result result = (StorageIoWorker.Result)lane.results.get(pos);
+      if (result != null) {
+         return Either.left(result.nbt.thenApply((nbtCompound) -> {
+            return nbtCompound != null ? nbtCompound.copy() : null;
+         }));
+      } else {
+         try {
+            if (parallel) {
+               RegionFile regionFile = lane.storage.getRegionFile(pos);
+               return Either.left(CompletableFuture.supplyAsync(() -> {
+                  return this.readOffLane(lane, regionFile, pos, startTime);
+               }, Util.getIoWorkerExecutor()).thenCompose(Function.identity()));
+            } else {
+               NbtCompound nbtCompound = lane.storage.getTagAt(pos);
+               this.readLatency.add(Util.getMeasuringTimeNano() - startTime);
+               return Either.left(CompletableFuture.completedFuture(nbtCompound));
+            }
+         } catch (Exception var8) {
+            LOGGER.warn((String)"Failed to read chunk {}", (Object)pos, (Object)var8);
+            return Either.right(var8);
+         }
+      }
+   }
+
+   private CompletableFuture<NbtCompound> readOffLane(StorageIoWorker.Lane lane, RegionFile regionFile, ChunkPos pos, long startTime) {
+      try {
+         NbtCompound nbtCompound = RegionBasedStorage.readTag(regionFile, pos);
+         this.readLatency.add(Util.getMeasuringTimeNano() - startTime);
+         return CompletableFuture.completedFuture(nbtCompound);
+      } catch (ClosedChannelException var7) {
+         return lane.run(() -> {
+            return this.readOnLane(lane, pos, startTime, false);
+         }).thenCompose(Function.identity());
+      } catch (Exception var8) {
+         LOGGER.warn((String)"Failed to read chunk {}", (Object)pos, (Object)var8);
+         CompletableFuture<NbtCompound> completableFuture = new CompletableFuture();
+         completableFuture.completeExceptionally(var8);
+         return completableFuture;
+      }
+   }
+
+   /**
+    * Looks up the generation status of a chunk, reading the chunk only if its
+    * region has no index entry for it. The future completes with {@code null} if
+    * the chunk is not stored.
+    */
+   public CompletableFuture<ChunkStatusIndex.Entry> getChunkStatus(ChunkPos pos) {
+      StorageIoWorker.Lane lane = this.getLane(pos);
+      return lane.run(() -> {
+         StorageIoWorker.Result result = (StorageIoWorker.Result)lane.results.get(pos);
          if (result != null) {
-            return Either.left(result.nbt);
+            return Either.left(result.nbt.thenApply((nbtCompound) -> {
+               return nbtCompound != null ? new ChunkStatusIndex.Entry(ChunkStatusIndex.getStatus(nbtCompound), Util.getEpochTimeMs()) : null;
+            }));
          } else {
             try {
-               NbtCompound nbtCompound = this.storage.getTagAt(pos);
-               return Either.left(nbtCompound);
+               return Either.left(CompletableFuture.completedFuture(lane.storage.getChunkStatus(pos)));
             } catch (Exception var4) {
-               LOGGER.warn((String)"Failed to read chunk {}", (Object)pos, (Object)var4);
+               LOGGER.warn((String)"Failed to look up status of chunk {}", (Object)pos, (Object)var4);
                return Either.right(var4);
             }
          }
-      });
+      }).thenCompose(Function.identity());
    }
 
    public CompletableFuture<Void> completeAll() {
-      CompletableFuture<Void> completableFuture = this.run(() -> {
-         return Either.left(CompletableFuture.allOf((CompletableFuture[])this.results.values().stream().map((result) -> {
-            return result.future;
-         }).toArray((i) -> {
-            return new CompletableFuture[i];
-         })));
-      }).thenCompose(Function.identity());
-      return completableFuture.thenCompose((void_) -> {
-         return this.run(() -> {
-            try {
-               this.storage.sync();
-               return Either.left((Object)null);
-            } catch (Exception var2) {
-               LOGGER.warn((String)"Failed to synchronized chunks", (Throwable)var2);
-               return Either.right(var2);
-            }
-         });
-      });
+      return CompletableFuture.allOf((CompletableFuture[])Arrays.stream(this.lanes).map(StorageIoWorker.Lane::completeAll).toArray((i) -> {
+         return new CompletableFuture[i];
+      }));
    }
 
-   private <T> CompletableFuture<T> run(Supplier<Either<T, Exception>> task) {
-      return this.executor.askFallible((messageListener) -> {
-         return new TaskQueue.PrioritizedTask(StorageIoWorker.Priority.FOREGROUND.ordinal(), () -> {
-            if (!this.closed.get()) {
-               messageListener.send((Either)task.get());
-            }
+   /**
+    * {@return whether so many writes are pending that postponable writes should wait}
+    */
+   public boolean isBacklogged() {
+      return this.pendingWrites.get() >= MAX_PENDING_WRITES_PER_LANE * this.lanes.length;
+   }
 
-            this.writeRemainingResults();
-         });
-      });
+   public int getPendingWriteCount() {
+      return this.pendingWrites.get();
    }
 
-   private void writeResult() {
-      if (!this.results.isEmpty()) {
-         Iterator<Entry<ChunkPos, StorageIoWorker.Result>> iterator = this.results.entrySet().iterator();
-         Entry<ChunkPos, StorageIoWorker.Result> entry = (Entry)iterator.next();
-         iterator.remove();
-         this.write((ChunkPos)entry.getKey(), (StorageIoWorker.Result)entry.getValue());
-         this.writeRemainingResults();
+   public int getQueueSize() {
+      int i = 0;
+
+      for(int j = 0; j < this.lanes.length; ++j) {
+         i += this.lanes[j].executor.getQueueSize();
       }
+
+      return i;
    }
 
-   private void writeRemainingResults() {
-      this.executor.send(new TaskQueue.PrioritizedTask(StorageIoWorker.Priority.BACKGROUND.ordinal(), this::writeResult));
+   public double getAverageReadLatencyMs() {
+      return this.readLatency.getAverageMs();
    }
 
-   private void write(ChunkPos pos, StorageIoWorker.Result result) {
-      try {
-         this.storage.write(pos, result.nbt);
-         result.future.complete((Object)null);
-      } catch (Exception var4) {
-         LOGGER.error((String)"Failed to store chunk {}", (Object)pos, (Object)var4);
-         result.future.completeExceptionally(var4);
-      }
+   public double getAverageWriteLatencyMs() {
+      return this.writeLatency.getAverageMs();
+   }
 
+   public List<SamplingRecorder> getSamplers() {
+      return ImmutableList.of(SamplingRecorder.create("IOWorker-" + this.name + "-pending-writes", SamplingChannel.STORAGE, this::getPendingWriteCount), SamplingRecorder.create("IOWorker-" + this.name + "-read-latency", SamplingChannel.STORAGE, this::getAverageReadLatencyMs), SamplingRecorder.create("IOWorker-" + this.name + "-write-latency", SamplingChannel.STORAGE, this::getAverageWriteLatencyMs));
    }
 
    public void close() throws IOException {
       if (this.closed.compareAndSet(false, true)) {
+         StorageIoWorker.Lane[] var1 = this.lanes;
+         int var2 = var1.length;
+
+         for(int var3 = 0; var3 < var2; ++var3) {
+            StorageIoWorker.Lane lane = var1[var3];
+            lane.close();
+         }
+
+      }
+   }
+
+   static enum Priority {
+      FOREGROUND,
+      BACKGROUND,
+      SHUTDOWN;
+   }
+
+   class Lane {
+      final TaskExecutor<TaskQueue.PrioritizedTask> executor;
+      final RegionBasedStorage storage;
+      final Map<ChunkPos, StorageIoWorker.Result> results = Maps.newLinkedHashMap();
+
+      Lane(RegionBasedStorage storage, String name) {
+         this.storage = storage;
+         this.executor = new TaskExecutor(new TaskQueue.Prioritized(StorageIoWorker.Priority.values().length), Util.getIoWorkerExecutor(), name);
+      }
+
+      CompletableFuture<Void> completeAll() {
+         CompletableFuture<Void> completableFuture = this.run(() -> {
+            return Either.left(CompletableFuture.allOf((CompletableFuture[])this.results.values().stream().map((result) -> {
+               return result.future;
+            }).toArray((i) -> {
+               return new CompletableFuture[i];
+            })));
+         }).thenCompose(Function.identity());
+         return completableFuture.thenCompose((void_) -> {
+            return this.run(() -> {
+               try {
+                  this.storage.sync();
+                  return Either.left((Object)null);
+               } catch (Exception var2) {
+                  StorageIoWorker.LOGGER.warn((String)"Failed to synchronized chunks", (Throwable)var2);
+                  return Either.right(var2);
+               }
+            });
+         });
+      }
+
+      <T> CompletableFuture<T> run(Supplier<Either<T, Exception>> task) {
+         return this.executor.askFallible((messageListener) -> {
+            return new TaskQueue.PrioritizedTask(StorageIoWorker.Priority.FOREGROUND.ordinal(), () -> {
+               if (!StorageIoWorker.this.closed.get()) {
+                  messageListener.send((Either)task.get());
+               }
+
+               this.writeRemainingResults();
+            });
+         });
+      }
+
+      private void writeResult() {
+         if (!this.results.isEmpty()) {
+            Iterator<Entry<ChunkPos, StorageIoWorker.Result>> iterator = this.results.entrySet().iterator();
+            Entry<ChunkPos, StorageIoWorker.Result> entry = (Entry)iterator.next();
+            iterator.remove();
+            StorageIoWorker.this.pendingWrites.decrementAndGet();
+            this.write((ChunkPos)entry.getKey(), (StorageIoWorker.Result)entry.getValue());
+            this.writeRemainingResults();
+         }
+      }
+
+      private void writeRemainingResults() {
+         this.executor.send(new TaskQueue.PrioritizedTask(StorageIoWorker.Priority.BACKGROUND.ordinal(), this::writeResult));
+      }
+
+      private void write(ChunkPos pos, StorageIoWorker.Result result) {
+         try {
+            this.storage.write(pos, (NbtCompound)result.nbt.join());
+            StorageIoWorker.this.writeLatency.add(Util.getMeasuringTimeNano() - result.queuedTime);
+            result.future.complete((Object)null);
+         } catch (Exception var4) {
+            StorageIoWorker.LOGGER.error((String)"Failed to store chunk {}", (Object)pos, (Object)var4);
+            result.future.completeExceptionally(var4);
+         }
+
+      }
+
+      void close() {
          this.executor.ask((messageListener) -> {
             return new TaskQueue.PrioritizedTask(StorageIoWorker.Priority.SHUTDOWN.ordinal(), () -> {
                messageListener.send(Unit.INSTANCE);
@@ -146,24 +353,34 @@ public class StorageIoWorker implements AutoCloseable {
          try {
             this.storage.close();
          } catch (Exception var2) {
-            LOGGER.error((String)"Failed to close storage", (Throwable)var2);
+            StorageIoWorker.LOGGER.error((String)"Failed to close storage", (Throwable)var2);
          }
 
       }
    }
 
-   static enum Priority {
-      FOREGROUND,
-      BACKGROUND,
-      SHUTDOWN;
+   /**
+    * Keeps an exponential moving average of the latency of I/O operations,
+    * from the moment they were queued until they completed.
+    */
+   static class LatencyTracker {
+      private double averageNanos;
+
+      synchronized void add(long nanos) {
+         this.averageNanos = this.averageNanos == 0.0D ? (double)nanos : this.averageNanos * 0.95D + (double)nanos * 0.05D;
+      }
+
+      synchronized double getAverageMs() {
+         return this.averageNanos / 1000000.0D;
+      }
    }
 
    private static class Result {
-      @Nullable
-      NbtCompound nbt;
+      CompletableFuture<NbtCompound> nbt;
       final CompletableFuture<Void> future = new CompletableFuture();
+      final long queuedTime = Util.getMeasuringTimeNano();
 
-      public Result(@Nullable NbtCompound nbt) {
+      public Result(CompletableFuture<NbtCompound> nbt) {
          this.nbt = nbt;
       }
    }
@@ -3,6 +3,7 @@ package net.minecraft.world.storage;
 import com.mojang.datafixers.DataFixer;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 import net.minecraft.SharedConstants;
 import net.minecraft.datafixer.DataFixTypes;
@@ -23,7 +24,7 @@ public class VersionedChunkStorage implements AutoCloseable {
 
    public VersionedChunkStorage(File directory, DataFixer dataFixer, boolean dsync) {
       this.dataFixer = dataFixer;
-      this.worker = new StorageIoWorker(directory, dsync, "chunk");
+      this.worker = new StorageIoWorker(directory, dsync, "chunk", true);
    }
 
    public NbtCompound updateChunkNbt(RegistryKey<World> worldKey, Supplier<PersistentStateManager> persistentStateManagerFactory, NbtCompound nbt) {
@@ -57,7 +58,19 @@ public class VersionedChunkStorage implements AutoCloseable {
       return this.worker.getNbt(chunkPos);
    }
 
+   /**
+    * {@return a future of what is known about the stored chunk without reading it}
+    * The future completes with {@code null} if the chunk is not stored.
+    */
+   public CompletableFuture<ChunkStatusIndex.Entry> getChunkStatus(ChunkPos chunkPos) {
+      return this.worker.getChunkStatus(chunkPos);
+   }
+
    public void setNbt(ChunkPos chunkPos, NbtCompound nbt) {
+      this.setNbt(chunkPos, CompletableFuture.completedFuture(nbt));
+   }
+
+   public void setNbt(ChunkPos chunkPos, CompletableFuture<NbtCompound> nbt) {
       this.worker.setResult(chunkPos, nbt);
       if (this.featureUpdater != null) {
          this.featureUpdater.markResolved(chunkPos.toLong());
@@ -65,6 +78,14 @@ public class VersionedChunkStorage implements AutoCloseable {
 
    }
 
+   /**
+    * {@return whether the storage has so many pending writes that saves which
+    * can be postponed should be}
+    */
+   public boolean isSaveBacklogged() {
+      return this.worker.isBacklogged();
+   }
+
    public void completeAll() {
       this.worker.completeAll().join();
    }
@@ -11,6 +11,9 @@ import com.mojang.datafixers.DataFixer;
 import it.unimi.dsi.fastutil.objects.Object2FloatMap;
 import it.unimi.dsi.fastutil.objects.Object2FloatMaps;
 import it.unimi.dsi.fastutil.objects.Object2FloatOpenCustomHashMap;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
@@ -20,6 +23,8 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.minecraft.SharedConstants;
 import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.text.LiteralText;
 import net.minecraft.text.Text;
 import net.minecraft.text.TranslatableText;
 import net.minecraft.util.Util;
@@ -29,6 +34,8 @@ import net.minecraft.util.registry.RegistryKey;
 import net.minecraft.world.PersistentStateManager;
 import net.minecraft.world.World;
 import net.minecraft.world.level.storage.LevelStorage;
+import net.minecraft.world.storage.ChunkStreamDictionaries;
+import net.minecraft.world.storage.ChunkStreamVersion;
 import net.minecraft.world.storage.RegionFile;
 import net.minecraft.world.storage.VersionedChunkStorage;
 import org.apache.logging.log4j.LogManager;
@@ -38,7 +45,9 @@ public class WorldUpdater {
    private static final Logger LOGGER = LogManager.getLogger();
    private static final ThreadFactory UPDATE_THREAD_FACTORY = (new ThreadFactoryBuilder()).setDaemon(true).build();
    private final ImmutableSet<RegistryKey<World>> worlds;
+   private static final int DICTIONARY_SAMPLE_COUNT = 512;
    private final boolean eraseCache;
+   private final boolean recompress;
    private final LevelStorage.Session session;
    private final Thread updateThread;
    private final DataFixer dataFixer;
@@ -54,8 +63,16 @@ public class WorldUpdater {
    private final PersistentStateManager persistentStateManager;
 
    public WorldUpdater(LevelStorage.Session session, DataFixer dataFixer, ImmutableSet<RegistryKey<World>> worlds, boolean eraseCache) {
+      this(session, dataFixer, worlds, eraseCache, false);
+   }
+
+   /**
+    * @param recompress whether every chunk should be rewritten with the {@linkplain ChunkStreamVersion#getCurrent() current chunk stream version}, even if it is up to date
+    */
+   public WorldUpdater(LevelStorage.Session session, DataFixer dataFixer, ImmutableSet<RegistryKey<World>> worlds, boolean eraseCache, boolean recompress) {
       this.worlds = worlds;
       this.eraseCache = eraseCache;
+      this.recompress = recompress;
       this.dataFixer = dataFixer;
       this.session = session;
       this.persistentStateManager = new PersistentStateManager(new File(this.session.getWorldDirectory(World.OVERWORLD), "data"), dataFixer);
@@ -86,6 +103,10 @@ public class WorldUpdater {
       for(UnmodifiableIterator var2 = this.worlds.iterator(); var2.hasNext(); this.totalChunkCount += list.size()) {
          RegistryKey<World> registryKey = (RegistryKey)var2.next();
          list = this.getChunkPositions(registryKey);
+         if (this.recompress && ChunkStreamVersion.getCurrent().usesDictionary()) {
+            this.trainDictionary(registryKey, list);
+         }
+
          builder.put(registryKey, list.listIterator());
       }
 
@@ -141,7 +162,7 @@ public class WorldUpdater {
                            nbtCompound3.remove("isLightOn");
                         }
 
-                        if (bl3) {
+                        if (bl3 || this.recompress) {
                            versionedChunkStorage.setNbt(chunkPos, nbtCompound2);
                            bl2 = true;
                         }
@@ -196,6 +217,39 @@ public class WorldUpdater {
       }
    }
 
+   private void trainDictionary(RegistryKey<World> world, List<ChunkPos> chunks) {
+      if (!chunks.isEmpty()) {
+         this.status = new LiteralText("Training compression dictionary...");
+         File file = new File(this.session.getWorldDirectory(world), "region");
+         List<byte[]> list = Lists.newArrayList();
+         int i = Math.max(1, chunks.size() / DICTIONARY_SAMPLE_COUNT);
+
+         try {
+            VersionedChunkStorage versionedChunkStorage = new VersionedChunkStorage(file, this.dataFixer, true);
+
+            try {
+               for(int j = 0; j < chunks.size() && this.keepUpgradingChunks; j += i) {
+                  NbtCompound nbtCompound = versionedChunkStorage.getNbt((ChunkPos)chunks.get(j));
+                  if (nbtCompound != null) {
+                     ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+                     NbtIo.write((NbtCompound)nbtCompound, (DataOutput)(new DataOutputStream(byteArrayOutputStream)));
+                     list.add(byteArrayOutputStream.toByteArray());
+                  }
+               }
+            } finally {
+               versionedChunkStorage.close();
+            }
+
+            byte[] bs = ChunkStreamDictionaries.train(list, ChunkStreamDictionaries.MAX_SIZE);
+            ChunkStreamDictionaries.load(file.toPath()).save(bs);
+            LOGGER.info((String)"Trained {} byte chunk dictionary for {} from {} chunks", bs.length, world.getValue(), list.size());
+         } catch (IOException var13) {
+            LOGGER.error((String)"Failed to train chunk dictionary for {}", (Object)world.getValue(), (Object)var13);
+         }
+
+      }
+   }
+
    private List<ChunkPos> getChunkPositions(RegistryKey<World> world) {
       File file = this.session.getWorldDirectory(world);
       File file2 = new File(file, "region");
@@ -0,0 +1,108 @@
+package net.minecraft.world.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class Lz4StreamTest {
+   private static final int MAX_DISTANCE = 65535;
+
+   /**
+    * Compresses and decompresses a sample covering long literal runs, long and
+    * overlapping matches and several blocks, and checks that the data survives.
+    */
+   @Test
+   public void roundTrip() throws IOException {
+      byte[] bs = createSample(new Random(0L), Lz4OutputStream.BLOCK_SIZE + 20000);
+      assertArrayEquals(bs, roundTrip(bs, 1000));
+   }
+
+   @Test
+   public void roundTripRandomSamples() throws IOException {
+      Random random = new Random(1L);
+
+      for(int i = 0; i < 200; ++i) {
+         byte[] bs = createSample(random, random.nextInt(3 * Lz4OutputStream.BLOCK_SIZE));
+         assertArrayEquals(bs, roundTrip(bs, bs.length == 0 ? 0 : random.nextInt(bs.length)));
+      }
+   }
+
+   @Test
+   public void roundTripEmpty() throws IOException {
+      assertArrayEquals(new byte[0], roundTrip(new byte[0], 0));
+   }
+
+   private static byte[] createSample(Random random, int length) {
+      byte[] bs = new byte[length];
+      int i = 0;
+
+      while(i < bs.length) {
+         int j = Math.min(bs.length - i, 1 + random.nextInt(600));
+         switch(random.nextInt(4)) {
+         case 0:
+            for(int k = 0; k < j; ++k) {
+               bs[i + k] = (byte)random.nextInt(256);
+            }
+            break;
+         case 1:
+            Arrays.fill(bs, i, i + j, (byte)random.nextInt(4));
+            break;
+         case 2:
+            if (i > 0) {
+               int l = i - 1 - random.nextInt(Math.min(i, MAX_DISTANCE));
+
+               for(int m = 0; m < j; ++m) {
+                  bs[i + m] = bs[l + m];
+               }
+            }
+            break;
+         default:
+            for(int n = 0; n < j; ++n) {
+               bs[i + n] = (byte)"minecraft:stone".charAt(n % 15);
+            }
+         }
+
+         i += j;
+      }
+
+      return bs;
+   }
+
+   /**
+    * Compresses the data with a flush after the first {@code split} bytes, and
+    * returns what decompressing it gives back.
+    */
+   private static byte[] roundTrip(byte[] data, int split) throws IOException {
+      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      Lz4OutputStream lz4OutputStream = new Lz4OutputStream(byteArrayOutputStream);
+      lz4OutputStream.write(data, 0, split);
+      lz4OutputStream.flush();
+      lz4OutputStream.write(data, split, data.length - split);
+      lz4OutputStream.close();
+      Lz4InputStream lz4InputStream = new Lz4InputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+
+      byte[] bs;
+      try {
+         bs = new byte[data.length];
+         int i = 0;
+
+         int j;
+         while(i < bs.length && (j = lz4InputStream.read(bs, i, bs.length - i)) > 0) {
+            i += j;
+         }
+
+         assertEquals(bs.length, i);
+         assertEquals(-1, lz4InputStream.read());
+      } finally {
+         lz4InputStream.close();
+      }
+
+      return bs;
+   }
+}